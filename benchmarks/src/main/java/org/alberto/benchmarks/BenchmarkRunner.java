@@ -0,0 +1,29 @@
+package org.alberto.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. It takes the usual JMH command line, but always adds
+ * the GC profiler (as with ``-prof gc''), so that each benchmark also reports how much
+ * memory it allocates per operation.
+ * @author alberto
+ *
+ */
+public class BenchmarkRunner {
+	public static void main(final String[] args) throws Exception {
+		final CommandLineOptions command_line = new CommandLineOptions(args);
+		
+		// Listing benchmarks, profilers, etc. does not run anything: let JMH handle it
+		if(command_line.shouldHelp() || command_line.shouldList() || command_line.shouldListWithParams()
+				|| command_line.shouldListProfilers() || command_line.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+		
+		new Runner(new OptionsBuilder().parent(command_line).addProfiler(GCProfiler.class).build()).run();
+	}
+}
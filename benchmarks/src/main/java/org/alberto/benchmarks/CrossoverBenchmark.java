@@ -0,0 +1,75 @@
+package org.alberto.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alberto.biasedga.Individual;
+import org.alberto.biasedga.RandomStream;
+import org.alberto.tsp.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Biased crossover between an elite and a non-elite parent, for both encodings. For random
+ * keys we measure both the allocating version (crossover) and the in-place one used with an
+ * arena (crossover_into). Run with ``-t'' to cross over from several threads.
+ * @author alberto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrossoverBenchmark {
+	/**
+	 * Bias towards the elite parent, as in TestSolver.
+	 */
+	static final double BIAS = 0.7;
+	
+	@Param({ "gr17", "gr21", "gr24", "gr48", "hk48", "gr120", "pa561" })
+	String instance;
+	
+	Individual rk_elite, rk_other, rk_target;
+	Individual pk_elite, pk_other;
+	
+	final RandomStream prng = new RandomStream(42);
+	
+	@Setup
+	public void setup() {
+		final Graph graph = Instances.load(instance);
+		final org.alberto.tsp.ga.randomkey.TSPIndividualGenerator rk_generator = new org.alberto.tsp.ga.randomkey.TSPIndividualGenerator(graph);
+		final org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator pk_generator = new org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator(graph);
+		
+		rk_elite = rk_generator.generate(prng);
+		rk_other = rk_generator.generate(prng);
+		rk_target = new org.alberto.tsp.ga.randomkey.TSPIndividualArena(graph).allocate(1)[0];
+		pk_elite = pk_generator.generate(prng);
+		pk_other = pk_generator.generate(prng);
+	}
+	
+	@Benchmark
+	public Individual random_key_crossover() {
+		return rk_elite.crossover(rk_other, BIAS, prng);
+	}
+	
+	@Benchmark
+	public Individual random_key_crossover_into() {
+		rk_elite.crossover_into(rk_other, BIAS, rk_target, prng);
+		return rk_target;
+	}
+	
+	@Benchmark
+	public Individual permutation_key_crossover() {
+		return pk_elite.crossover(pk_other, BIAS, prng);
+	}
+}
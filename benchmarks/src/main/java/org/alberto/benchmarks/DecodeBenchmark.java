@@ -0,0 +1,112 @@
+package org.alberto.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alberto.biasedga.Individual;
+import org.alberto.biasedga.RandomStream;
+import org.alberto.tsp.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding and evaluation of one individual, for both encodings. Each operation evaluates
+ * the next individual from a fixed set of random ones, so that we do not keep decoding the
+ * same one (with all its data in cache). Run with ``-t'' to evaluate from several threads.
+ * @author alberto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+	/**
+	 * Number of different individuals we cycle through.
+	 */
+	static final int INDIVIDUALS = 64;
+	
+	@Param({ "gr17", "gr21", "gr24", "gr48", "hk48", "gr120", "pa561" })
+	String instance;
+	
+	org.alberto.tsp.ga.randomkey.TSPIndividualEvaluator rk_evaluator;
+	org.alberto.tsp.ga.randomkey.TSPIndividualEvaluator rk_incremental_evaluator;
+	org.alberto.tsp.ga.permutationkey.TSPIndividualEvaluator pk_evaluator;
+	
+	Individual[] rk_individuals;
+	Individual[] rk_parents;
+	Individual[] rk_children;
+	Individual[] pk_individuals;
+	
+	/**
+	 * Scratch fitness for the batch evaluation of children.
+	 */
+	final double[] fitness = new double[INDIVIDUALS];
+	
+	/**
+	 * Next individual to evaluate.
+	 */
+	int next = 0;
+	
+	@Setup
+	public void setup() {
+		final Graph graph = Instances.load(instance);
+		final RandomStream prng = new RandomStream(42);
+		final org.alberto.tsp.ga.randomkey.TSPIndividualGenerator rk_generator = new org.alberto.tsp.ga.randomkey.TSPIndividualGenerator(graph);
+		final org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator pk_generator = new org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator(graph);
+		
+		rk_evaluator = new org.alberto.tsp.ga.randomkey.TSPIndividualEvaluator(graph);
+		rk_incremental_evaluator = new org.alberto.tsp.ga.randomkey.TSPIndividualEvaluator(graph).with_incremental_decoding(true);
+		pk_evaluator = new org.alberto.tsp.ga.permutationkey.TSPIndividualEvaluator(graph);
+		
+		rk_individuals = new Individual[INDIVIDUALS];
+		rk_parents = new Individual[INDIVIDUALS];
+		rk_children = new Individual[INDIVIDUALS];
+		pk_individuals = new Individual[INDIVIDUALS];
+		
+		for(int i = 0; i < INDIVIDUALS; i++) {
+			rk_individuals[i] = rk_generator.generate(prng);
+			pk_individuals[i] = pk_generator.generate(prng);
+			
+			// Children of a decoded elite parent, as produced by the solver with bias 0.7
+			rk_parents[i] = rk_generator.generate(prng);
+			rk_incremental_evaluator.fitness_of(rk_parents[i]);
+			rk_children[i] = rk_parents[i].crossover(rk_generator.generate(prng), 0.7, prng);
+		}
+	}
+	
+	int next_individual() {
+		next = (next + 1 == INDIVIDUALS) ? 0 : next + 1;
+		return next;
+	}
+	
+	@Benchmark
+	public double random_key_fitness_of() {
+		return rk_evaluator.fitness_of(rk_individuals[next_individual()]);
+	}
+	
+	/**
+	 * Incremental decoding of a child, starting from the decoded tour of its elite parent.
+	 */
+	@Benchmark
+	public double random_key_fitness_of_child() {
+		final int i = next_individual();
+		rk_incremental_evaluator.fitness_of_children(rk_children, rk_parents, i, i + 1, fitness);
+		return fitness[i];
+	}
+	
+	@Benchmark
+	public double permutation_key_fitness_of() {
+		return pk_evaluator.fitness_of(pk_individuals[next_individual()]);
+	}
+}
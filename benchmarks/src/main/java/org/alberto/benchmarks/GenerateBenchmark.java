@@ -0,0 +1,67 @@
+package org.alberto.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alberto.biasedga.Individual;
+import org.alberto.biasedga.RandomStream;
+import org.alberto.tsp.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generation of new random individuals (mutants), for both encodings. For random keys we
+ * measure both the allocating version (generate) and the in-place one used with an arena
+ * (generate_into). Run with ``-t'' to generate from several threads.
+ * @author alberto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateBenchmark {
+	@Param({ "gr17", "gr21", "gr24", "gr48", "hk48", "gr120", "pa561" })
+	String instance;
+	
+	org.alberto.tsp.ga.randomkey.TSPIndividualGenerator rk_generator;
+	org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator pk_generator;
+	Individual rk_target;
+	
+	final RandomStream prng = new RandomStream(42);
+	
+	@Setup
+	public void setup() {
+		final Graph graph = Instances.load(instance);
+		
+		rk_generator = new org.alberto.tsp.ga.randomkey.TSPIndividualGenerator(graph);
+		pk_generator = new org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator(graph);
+		rk_target = new org.alberto.tsp.ga.randomkey.TSPIndividualArena(graph).allocate(1)[0];
+	}
+	
+	@Benchmark
+	public Individual random_key_generate() {
+		return rk_generator.generate(prng);
+	}
+	
+	@Benchmark
+	public Individual random_key_generate_into() {
+		rk_generator.generate_into(rk_target, prng);
+		return rk_target;
+	}
+	
+	@Benchmark
+	public Individual permutation_key_generate() {
+		return pk_generator.generate(prng);
+	}
+}
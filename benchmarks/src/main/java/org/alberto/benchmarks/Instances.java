@@ -0,0 +1,33 @@
+package org.alberto.benchmarks;
+
+import java.io.File;
+
+import org.alberto.tsp.Graph;
+import org.alberto.tsp.TSPLibGraphGenerator;
+
+/**
+ * Loads the TSPLib instances bundled with the project, for the benchmarks. They are read
+ * from the directory in the ``tsplib.dir'' system property, or else from the tsplib
+ * directory of the repository (when running from its root or from the benchmarks module).
+ * @author alberto
+ *
+ */
+public class Instances {
+	public static Graph load(final String instance) {
+		final File file = new File(directory(), instance + ".tsp");
+		if(!file.exists()) {
+			System.err.println("Cannot find instance: " + file + " (set -Dtsplib.dir=...)");
+			System.exit(1);
+		}
+		
+		return new TSPLibGraphGenerator(file.getPath()).generate();
+	}
+	
+	static File directory() {
+		final String property = System.getProperty("tsplib.dir");
+		if(property != null) { return new File(property); }
+		
+		final File here = new File("tsplib");
+		return here.isDirectory() ? here : new File(new File(".."), "tsplib");
+	}
+}
@@ -0,0 +1,107 @@
+package org.alberto.biasedga;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alberto.benchmarks.Instances;
+import org.alberto.tsp.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One full generation of the solver (Solver.evolve_new_generation): elite copy, mutants,
+ * crossover, evaluation and ranking. The benchmark lives in the solver's package because
+ * evolve_new_generation is package-private.
+ * Each operation evolves a new generation from the same initial population (we never swap
+ * the populations), so that all operations do the same amount of work, however long the run.
+ * The GC profiler only counts the memory allocated by the benchmark thread, and not by the
+ * solver's workers: use the SEQUENTIAL runs to measure the allocations per generation.
+ * The default parameters are kept small (24 runs, a few minutes), enough to catch
+ * regressions; pass the full sweep on the command line, e.g.
+ * -p instance=gr17,gr21,gr24,gr48,hk48,gr120,pa561 -p execution_mode=FIXED_THREADS,FORK_JOIN -p n_threads=1,2,4,8
+ * (SEQUENTIAL ignores n_threads, so it only needs one of them).
+ * @author alberto
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvolveBenchmark {
+	@Param({ "gr48", "pa561" })
+	String instance;
+	
+	/**
+	 * Encoding: random keys (with and without arena) or permutation keys.
+	 */
+	@Param({ "random-key", "random-key-arena", "permutation-key" })
+	String encoding;
+	
+	@Param({ "SEQUENTIAL", "FIXED_THREADS" })
+	ExecutionMode execution_mode;
+	
+	@Param({ "1", "4" })
+	int n_threads;
+	
+	Solver solver;
+	
+	@Setup
+	public void setup() {
+		final Graph graph = Instances.load(instance);
+		
+		// Same parameters as TestSolver
+		final Parameters params = new ParametersBuilder()
+				.with_population_size(150)
+				.with_bias(0.7)
+				.with_elite_share(0.1)
+				.with_new_individuals_share(0.1)
+				.with_execution_mode(execution_mode)
+				.with_n_threads(n_threads)
+				.with_random_seed(42)
+				.build();
+		
+		final SolverVisitor visitor = new SolverVisitor() {
+			@Override
+			public void at_fixed_number_of_iterations(final Solver solver, final int iteration, final double elapsed_time_s) {}
+			
+			@Override
+			public void at_end(final Solver solver, final int iteration, final double elapsed_time_s) {}
+		};
+		
+		if(encoding.startsWith("random-key")) {
+			solver = new Solver(params,
+					new org.alberto.tsp.ga.randomkey.TSPIndividualGenerator(graph),
+					new org.alberto.tsp.ga.randomkey.TSPIndividualEvaluator(graph).with_incremental_decoding(true),
+					visitor,
+					encoding.endsWith("arena") ? new org.alberto.tsp.ga.randomkey.TSPIndividualArena(graph) : null);
+		} else {
+			solver = new Solver(params,
+					new org.alberto.tsp.ga.permutationkey.TSPIndividualGenerator(graph),
+					new org.alberto.tsp.ga.permutationkey.TSPIndividualEvaluator(graph),
+					visitor);
+		}
+		
+		solver.initialise_population();
+	}
+	
+	@TearDown
+	public void tear_down() {
+		solver.pool.shutdown();
+	}
+	
+	@Benchmark
+	public Population evolve_new_generation() {
+		return solver.evolve_new_generation();
+	}
+}
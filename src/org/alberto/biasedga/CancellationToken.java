@@ -0,0 +1,21 @@
+package org.alberto.biasedga;
+
+/**
+ * Lets other threads (e.g. a user interface, a supervisor, or a shutdown hook) ask
+ * running solvers to stop. Once cancelled, a token stays cancelled: solvers sharing
+ * it (see ParametersBuilder.with_cancellation_token) stop at the first check, which
+ * happens between individuals, so in-flight generations are abandoned promptly.
+ * @author alberto
+ *
+ */
+public class CancellationToken {
+	volatile boolean cancelled = false;
+	
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	public boolean is_cancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,176 @@
+package org.alberto.biasedga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Snapshot of a Solver between two generations, from which a new solver can resume
+ * exactly where the old one left off (see the Solver constructor which takes one).
+ * The random streams of the solver only depend on its seed, the generation and the
+ * slot of each individual, so the seed and the generation counter are all we need
+ * to save of its random state.
+ * 
+ * Format of a checkpoint file (big-endian):
+ * - MAGIC and VERSION (ints);
+ * - the seed (long);
+ * - the generation counter and the number of generations without improvement (ints);
+ * - the population size n (int);
+ * - the ranking of the slots: n ints;
+ * - the fitness of each slot: n doubles;
+ * - the size of the individuals' data (int), and the individuals of each slot, as
+ *   written by Individual.write.
+ * @author alberto
+ *
+ */
+public class Checkpoint {
+	static final int MAGIC = 0x42524B43; // "BRKC"
+	static final int VERSION = 1;
+	
+	/**
+	 * Seed from which the solver derives its random streams.
+	 */
+	final long seed;
+	
+	/**
+	 * Number of generations evolved.
+	 */
+	final int generation;
+	
+	/**
+	 * Number of consecutive generations without improvement.
+	 */
+	final int generations_no_improvement;
+	
+	/**
+	 * Ranking of the slots of the population (see Population.order).
+	 */
+	final int[] order;
+	
+	/**
+	 * Fitness of the individual in each slot.
+	 */
+	final double[] fitness;
+	
+	/**
+	 * The individuals, as written by Individual.write, slot after slot. We only rebuild
+	 * them when restoring, since we need the solver's generator (or arena) to do so.
+	 */
+	final byte[] individuals;
+	
+	Checkpoint(final long seed, final int generation, final int generations_no_improvement, final int[] order, final double[] fitness, final byte[] individuals) {
+		this.seed = seed;
+		this.generation = generation;
+		this.generations_no_improvement = generations_no_improvement;
+		this.order = order;
+		this.fitness = fitness;
+		this.individuals = individuals;
+	}
+	
+	/**
+	 * Takes a snapshot of ``solver'', which must be between two generations. This only
+	 * copies memory, so that the solver can carry on while the snapshot is saved.
+	 */
+	static Checkpoint of(final Solver solver, final int generations_no_improvement) throws IOException {
+		final Population population = solver.population;
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		
+		for(int slot = 0; slot < population.size(); slot++) { population.individuals[slot].write(out); }
+		out.flush();
+		
+		return new Checkpoint(solver.seed, solver.generation, generations_no_improvement, population.order.clone(), population.fitness.clone(), bytes.toByteArray());
+	}
+	
+	public int generation() {
+		return generation;
+	}
+	
+	/**
+	 * Puts the saved population back into ``solver'', and rewinds its generation counter.
+	 */
+	void restore(final Solver solver) throws IOException {
+		final Population population = solver.population;
+		if(order.length != population.size()) {
+			throw new IOException("The checkpoint holds " + order.length + " individuals, but the population size is " + population.size());
+		}
+		
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(individuals));
+		for(int slot = 0; slot < population.size(); slot++) {
+			if(solver.arena == null) {
+				population.set(slot, solver.generator.read(in), fitness[slot]);
+			} else {
+				solver.generator.read_into(population.individuals[slot], in);
+				population.fitness[slot] = fitness[slot];
+			}
+		}
+		System.arraycopy(order, 0, population.order, 0, order.length);
+		
+		solver.generation = generation;
+	}
+	
+	/**
+	 * Reads a checkpoint from file. Failing to do so is fatal.
+	 */
+	public static Checkpoint load(final String filename) {
+		try {
+			return read(Paths.get(filename));
+		} catch(IOException e) {
+			System.err.println("Could not read checkpoint: " + filename + " (" + e.getMessage() + ")");
+			System.exit(1);
+			return null;
+		}
+	}
+	
+	static Checkpoint read(final Path file) throws IOException {
+		try(final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) { throw new IOException("Not a checkpoint, or written by another version"); }
+			
+			final long seed = in.readLong();
+			final int generation = in.readInt();
+			final int generations_no_improvement = in.readInt();
+			final int n = in.readInt();
+			final int[] order = new int[n];
+			final double[] fitness = new double[n];
+			
+			for(int i = 0; i < n; i++) { order[i] = in.readInt(); }
+			for(int i = 0; i < n; i++) { fitness[i] = in.readDouble(); }
+			
+			final byte[] individuals = new byte[in.readInt()];
+			in.readFully(individuals);
+			
+			return new Checkpoint(seed, generation, generations_no_improvement, order, fitness, individuals);
+		}
+	}
+	
+	/**
+	 * Writes the checkpoint to a temporary file, then renames it to ``file'', so that
+	 * ``file'' always holds a complete checkpoint, even if we are killed while writing.
+	 */
+	void write(final Path file) throws IOException {
+		final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		
+		try(final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(seed);
+			out.writeInt(generation);
+			out.writeInt(generations_no_improvement);
+			out.writeInt(order.length);
+			for(int i = 0; i < order.length; i++) { out.writeInt(order[i]); }
+			for(int i = 0; i < fitness.length; i++) { out.writeDouble(fitness[i]); }
+			out.writeInt(individuals.length);
+			out.write(individuals);
+		}
+		
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,83 @@
+package org.alberto.biasedga;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves the checkpoints of a solver on a background thread. If the previous checkpoint
+ * is still being written when the next one comes, the next one is skipped, so the
+ * solver never waits for the disk.
+ * @author alberto
+ *
+ */
+class CheckpointWriter {
+	/**
+	 * Where to save the checkpoints (each one replaces the previous one).
+	 */
+	final Path file;
+	
+	/**
+	 * Single daemon thread which writes the checkpoints.
+	 */
+	final ExecutorService executor;
+	
+	/**
+	 * The checkpoint being written, if any. Only touched by the solver thread.
+	 */
+	Future<?> pending = null;
+	
+	CheckpointWriter(final String filename) {
+		this.file = Paths.get(filename);
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "brkga-checkpoint-writer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+	
+	/**
+	 * Saves a snapshot of ``solver'' in the background, unless the previous one is still being saved.
+	 */
+	void offer(final Solver solver, final int generations_no_improvement) {
+		if(pending != null && !pending.isDone()) { return; }
+		
+		try {
+			final Checkpoint checkpoint = Checkpoint.of(solver, generations_no_improvement);
+			pending = executor.submit(() -> write(checkpoint));
+		} catch(IOException e) {
+			System.err.println("Could not take a checkpoint: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Waits for the checkpoint being written, then saves a last snapshot of ``solver''
+	 * (so that the run can be continued later) and releases the thread.
+	 */
+	void close(final Solver solver, final int generations_no_improvement) {
+		try {
+			if(pending != null) { pending.get(); }
+			write(Checkpoint.of(solver, generations_no_improvement));
+		} catch(IOException | ExecutionException e) {
+			System.err.println("Could not take a checkpoint: " + e.getMessage());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor.shutdown();
+	}
+	
+	/**
+	 * Saving a checkpoint is not worth stopping the solver for, if it fails.
+	 */
+	void write(final Checkpoint checkpoint) {
+		try {
+			checkpoint.write(file);
+		} catch(IOException e) {
+			System.err.println("Could not write checkpoint: " + file + " (" + e.getMessage() + ")");
+		}
+	}
+}
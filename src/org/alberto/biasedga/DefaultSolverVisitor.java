@@ -1,57 +1,143 @@
 package org.alberto.biasedga;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Default visitor for the solver, which just prints stats to file
- * every once in a while, in CSV format.
+ * every once in a while, in CSV (or binary) format.
+ * 
+ * The solver thread only puts the stats in a lock-free queue, which a background
+ * thread drains, writing them to file in batches. If the writer falls behind and
+ * the queue fills up, new stats are dropped (and counted) rather than slowing the
+ * solver down, so it is cheap to log every generation.
  * @author santinia
  *
  */
 public class DefaultSolverVisitor extends SolverVisitor {
+	/**
+	 * Default number of stats records which can wait to be written.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+	
+	/**
+	 * How long the writer sleeps when there is nothing to write.
+	 */
+	static final long WRITER_IDLE_NANOS = 10_000_000L;
+	
 	/**
 	 * Name of the file where to save the stats.
 	 */
 	final String filename;
 	
 	/**
-	 * File writer to be used by the visitor.
+	 * Format of the file.
+	 */
+	final StatsFormat format;
+	
+	/**
+	 * Stats waiting to be written.
 	 */
-	final PrintWriter writer;
+	final StatsRingBuffer queue;
+	
+	/**
+	 * Buffered output to the file, only used by the writer thread (after the header).
+	 */
+	final DataOutputStream out;
+	
+	/**
+	 * Background thread which writes the stats.
+	 */
+	final Thread writer;
+	
+	/**
+	 * Set when the solver is done: the writer writes what is left, and stops.
+	 */
+	volatile boolean closing = false;
 
 	public DefaultSolverVisitor(final String filename) {
-		super(1000);
+		this(filename, 1000, StatsFormat.CSV, DEFAULT_QUEUE_CAPACITY);
+	}
+	
+	public DefaultSolverVisitor(final String filename, final int observe_every_n_iterations, final StatsFormat format, final int queue_capacity) {
+		super(observe_every_n_iterations);
 		this.filename = filename;
-		this.writer = initialise_writer(filename);
+		this.format = format;
+		this.queue = new StatsRingBuffer(queue_capacity);
+		this.out = initialise_output(filename);
+		this.writer = new Thread(this::write_stats, "brkga-stats-writer");
 		
-		writer.print("iteration,time,value\n");
+		writer.setDaemon(true);
+		writer.start();
 	}
 	
 	@Override
 	public void at_fixed_number_of_iterations(final Solver solver, final int iteration, final double elapsed_time_s) {
-		if(writer != null) { writer.print("" + iteration + "," + elapsed_time_s + "," + solver.population.first().fitness + "\n"); }
+		queue.offer(iteration, elapsed_time_s, solver.best_fitness());
 	}
 	
 	@Override
 	public void at_end(final Solver solver, final int iteration, final double elapsed_time_s) {
-		if(writer != null) {
-			System.out.println("Terminating after " + iteration + " generations and " + elapsed_time_s + " seconds.");
-			writer.close();
+		System.out.println("Terminating after " + iteration + " generations and " + elapsed_time_s + " seconds.");
+		
+		closing = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if(queue.dropped > 0) {
+			System.err.println("Dropped " + queue.dropped + " stats records, since they could not be written to " + filename + " fast enough.");
+		}
+	}
+	
+	/**
+	 * Body of the writer thread: writes all the stats in the queue, flushes them, and
+	 * sleeps until there are more, until the solver is done.
+	 */
+	void write_stats() {
+		final StringBuilder line = new StringBuilder(64);
+		
+		try {
+			while(true) {
+				// Read the flag first: if it is set, all the stats are in the queue already
+				final boolean last_batch = closing;
+				final long head = queue.head();
+				final long tail = queue.tail();
+				
+				for(long sequence = head; sequence < tail; sequence++) {
+					final int p = queue.position(sequence);
+					format.write_record(out, line, queue.iterations[p], queue.times[p], queue.values[p]);
+				}
+				queue.release(tail);
+				
+				if(last_batch) { break; }
+				if(tail > head) { out.flush(); } else { LockSupport.parkNanos(WRITER_IDLE_NANOS); }
+			}
+			out.close();
+		} catch(IOException e) {
+			System.err.println("Could not write stats to: " + filename);
+			System.exit(1);
 		}
 	}
 
 	/**
-	 * Try to initialise a PrintWriter to write in ``filename''.
+	 * Try to open ``filename'' for writing, and write the header of the format.
 	 */
-	PrintWriter initialise_writer(String filename) {
+	DataOutputStream initialise_output(String filename) {
 		try {
-			return new PrintWriter(new FileOutputStream(filename), true);
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+			format.write_header(out);
+			return out;
 		} catch(IOException e) {
 			System.err.println("Could not open output file for stats: " + filename);
 			System.exit(1);
 			return null;
 		}
 	}
-}
+}
\ No newline at end of file
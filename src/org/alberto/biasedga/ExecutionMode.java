@@ -0,0 +1,30 @@
+package org.alberto.biasedga;
+
+/**
+ * Execution backends that the solver can use to decode and evaluate individuals.
+ * @author alberto
+ *
+ */
+public enum ExecutionMode {
+	/**
+	 * Everything runs on the solver's thread. Best for tiny instances, where
+	 * handing work to other threads costs more than the work itself.
+	 */
+	SEQUENTIAL,
+	
+	/**
+	 * A fixed pool of platform threads, which lives as long as the solver.
+	 */
+	FIXED_THREADS,
+	
+	/**
+	 * A work-stealing fork-join pool, which recursively splits the work in chunks.
+	 */
+	FORK_JOIN,
+	
+	/**
+	 * One virtual thread per chunk of work. Falls back to FIXED_THREADS on JVMs
+	 * which do not support virtual threads.
+	 */
+	VIRTUAL_THREADS
+}
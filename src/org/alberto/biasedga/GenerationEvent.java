@@ -0,0 +1,61 @@
+package org.alberto.biasedga;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event committed by the solver at the end of each generation (when it
+ * collects metrics), so that generations can be lined up with GC and CPU samples. The
+ * event's own duration is the whole generation.
+ * @author alberto
+ *
+ */
+@Name("org.alberto.biasedga.Generation")
+@Label("Generation")
+@Category("BRKGA")
+@Description("One generation evolved by the solver")
+@StackTrace(false)
+class GenerationEvent extends jdk.jfr.Event {
+	@Label("Generation")
+	int generation;
+	
+	@Label("Best Fitness")
+	double best_fitness;
+	
+	@Label("Elite Copy")
+	@Timespan(Timespan.NANOSECONDS)
+	long elite;
+	
+	@Label("Mutants")
+	@Timespan(Timespan.NANOSECONDS)
+	long mutants;
+	
+	@Label("Crossover")
+	@Timespan(Timespan.NANOSECONDS)
+	long crossover;
+	
+	@Label("Evaluation")
+	@Description("Time spent evaluating individuals, summed over all worker threads")
+	@Timespan(Timespan.NANOSECONDS)
+	long evaluation;
+	
+	@Label("Improvement")
+	@Timespan(Timespan.NANOSECONDS)
+	long improvement;
+	
+	@Label("Ranking")
+	@Timespan(Timespan.NANOSECONDS)
+	long ranking;
+	
+	@Label("Evaluations")
+	long evaluations;
+	
+	@Label("Allocated")
+	@DataAmount(DataAmount.BYTES)
+	long allocated;
+}
@@ -1,5 +1,8 @@
 package org.alberto.biasedga;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Building block of the genetic algorithm.
  * @author alberto
@@ -13,6 +16,41 @@ public abstract class Individual {
 	
 	/**
 	 * Crosses this individual with another one, with a certain bias for the current individual.
+	 * All random choices must be drawn from ``prng''.
+	 */
+	public abstract Individual crossover(final Individual other, final double bias, final RandomStream prng);
+	
+	/**
+	 * Overwrites ``target'' with a copy of this individual. Only needed by individuals
+	 * which live in an IndividualArena.
+	 */
+	public void copy_into(final Individual target) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support in-place copies");
+	}
+	
+	/**
+	 * Crosses this individual with another one, like crossover, but writes the child
+	 * into ``target'' instead of allocating a new individual. Only needed by individuals
+	 * which live in an IndividualArena.
+	 */
+	public void crossover_into(final Individual other, final double bias, final Individual target, final RandomStream prng) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support in-place cross-over");
+	}
+	
+	/**
+	 * How different this individual is from ``other'', between 0 (identical) and 1. Used to
+	 * measure the diversity of the population: when it is not supported, the solver only
+	 * tells individuals apart by their fitness.
+	 */
+	public double distance(final Individual other) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support distances");
+	}
+	
+	/**
+	 * Writes the chromosome of this individual to ``out'', so that IndividualGenerator.read
+	 * can rebuild it exactly. Only needed to save checkpoints (see Checkpoint).
 	 */
-	public abstract Individual crossover(final Individual other, final double bias);
+	public void write(final DataOutput out) throws IOException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support checkpoints");
+	}
 }
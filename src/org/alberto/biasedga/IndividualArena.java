@@ -0,0 +1,19 @@
+package org.alberto.biasedga;
+
+/**
+ * Allocates blocks of individuals whose chromosomes all live in one contiguous
+ * chunk of memory. When the solver is given an arena, it allocates two such
+ * blocks (the current and the next generation) once and for all, and from then
+ * on it only overwrites them in place, by means of Individual.copy_into,
+ * Individual.crossover_into and IndividualGenerator.generate_into.
+ * @author alberto
+ *
+ */
+public abstract class IndividualArena {
+	/**
+	 * Allocates ``size'' individuals, backed by a fresh block of memory.
+	 * @param size	Number of individuals in the block.
+	 * @return		The individuals, whose content is not meaningful yet.
+	 */
+	public abstract Individual[] allocate(final int size);
+}
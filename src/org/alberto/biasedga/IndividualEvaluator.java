@@ -12,4 +12,56 @@ public abstract class IndividualEvaluator {
 	 * @return				The fitness of the individual.
 	 */
 	public abstract double fitness_of(final Individual individual);
+	
+	/**
+	 * Calculates the fitness of a block of individuals. By default it evaluates them
+	 * one at a time, but evaluators can override it to amortise their set-up costs
+	 * (e.g. scratch memory) over the whole block.
+	 * @param individuals	Array containing the individuals to evaluate.
+	 * @param from			First position (inclusive) of the block in ``individuals''.
+	 * @param to			Last position (exclusive) of the block in ``individuals''.
+	 * @param fitness		Where to store the fitness of individuals[i], at position i.
+	 */
+	public void fitness_of_batch(final Individual[] individuals, final int from, final int to, final double[] fitness) {
+		for(int i = from; i < to; i++) {
+			fitness[i] = fitness_of(individuals[i]);
+		}
+	}
+	
+	/**
+	 * Calculates the fitness of a block of individuals generated by crossover. Each child's
+	 * elite parent, which has already been evaluated, is at the same position in ``parents'':
+	 * evaluators can use it to evaluate the child incrementally. By default, the parents are
+	 * ignored and the children are evaluated with fitness_of_batch.
+	 * @param children	Array containing the individuals to evaluate.
+	 * @param parents	Array containing, at position i, the elite parent of children[i].
+	 * @param from		First position (inclusive) of the block in ``children''.
+	 * @param to		Last position (exclusive) of the block in ``children''.
+	 * @param fitness	Where to store the fitness of children[i], at position i.
+	 */
+	public void fitness_of_children(final Individual[] children, final Individual[] parents, final int from, final int to, final double[] fitness) {
+		fitness_of_batch(children, from, to, fitness);
+	}
+	
+	/**
+	 * Whether the solver should call improve on the best new individuals of each generation.
+	 * By default it does not, and improve is never called.
+	 */
+	public boolean improves_elite() {
+		return false;
+	}
+	
+	/**
+	 * Improves an individual (e.g. with a local search), and returns its new fitness. In each
+	 * generation, the solver calls it on the elite_size best individuals among the new ones
+	 * (mutants and children), i.e. on those which can make it into the elite, but only if
+	 * improves_elite returns true. The individual can be modified in place, and it can be one
+	 * that was already improved (e.g. a migrant): evaluators should recognise those, and skip them.
+	 * @param individual	The individual to improve.
+	 * @param fitness		Its current fitness.
+	 * @return				Its fitness after the improvement.
+	 */
+	public double improve(final Individual individual, final double fitness) {
+		return fitness;
+	}
 }
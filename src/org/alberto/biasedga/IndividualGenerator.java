@@ -1,26 +1,43 @@
 package org.alberto.biasedga;
 
-import java.util.Random;
+import java.io.DataInput;
+import java.io.IOException;
 
 /**
  * This class is a factory of new, random individuals.
+ * The generator does not own any source of randomness: the solver passes to it a
+ * random stream for each individual, so that runs can be reproduced exactly.
  * @author alberto
  *
  */
 public abstract class IndividualGenerator {
-	final protected  Random prng;
+	/**
+	 * Generates a new individual.
+	 * @param prng	Where to draw the random numbers from.
+	 * @return		The new, random individual generated.
+	 */
+	public abstract Individual generate(final RandomStream prng);
 	
-	public IndividualGenerator() {
-		this.prng = new Random();
+	/**
+	 * Overwrites ``target'' with a new, random individual. Only needed by generators
+	 * whose individuals live in an IndividualArena.
+	 */
+	public void generate_into(final Individual target, final RandomStream prng) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support in-place generation");
 	}
 	
-	public IndividualGenerator(final int random_seed) {
-		this.prng = new Random(random_seed);
+	/**
+	 * Rebuilds an individual saved by Individual.write. Only needed to resume from checkpoints.
+	 */
+	public Individual read(final DataInput in) throws IOException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support checkpoints");
 	}
 	
 	/**
-	 * Generates a new individual.
-	 * @return	The new, random individual generated.
+	 * Overwrites ``target'' with an individual saved by Individual.write. Only needed to
+	 * resume from checkpoints, by generators whose individuals live in an IndividualArena.
 	 */
-	public abstract Individual generate();
+	public void read_into(final Individual target, final DataInput in) throws IOException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support in-place checkpoints");
+	}
 }
@@ -31,8 +31,8 @@ public class IndividualWithFitness implements Comparable<IndividualWithFitness>
 	/**
 	 * Gets a new individual from the generator and asks the evaluator to evaluate its fitness.
 	 */
-	public IndividualWithFitness(final IndividualGenerator generator, final IndividualEvaluator evaluator) {
-		this.individual = generator.generate();
+	public IndividualWithFitness(final IndividualGenerator generator, final IndividualEvaluator evaluator, final RandomStream prng) {
+		this.individual = generator.generate(prng);
 		this.fitness = evaluator.fitness_of(this.individual);
 	}
 	
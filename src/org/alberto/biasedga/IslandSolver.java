@@ -0,0 +1,229 @@
+package org.alberto.biasedga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Island-model solver for the Biased Genetic Algorithm: it evolves n_islands independent
+ * populations, each on its own thread (and, if there are enough threads, with its own
+ * worker pool). Every migration_interval generations, each island sends copies of its
+ * best individuals to the other islands, according to the migration topology.
+ * 
+ * Islands never wait for each other: at a migration, an island publishes its best
+ * individuals in its outbox, and takes the latest individuals its sources published
+ * (if it did not take them already).
+ * 
+ * The visitor sees the island solver as a whole: best_fitness is the best fitness
+ * across all islands, and the iterations and metrics are those of the first island
+ * (each island publishes its own metrics via JMX).
+ * 
+ * With a diversity threshold (see ParametersBuilder.with_diversity_threshold), each
+ * island measures the diversity of its own elite, and restarts on its own; the visitor
+ * only hears of the restarts of the first island, as does diversity().
+ * 
+ * Checkpoints only hold one population, so the island solver does not support them,
+ * and rejects parameters with a checkpoint file.
+ * @author alberto
+ *
+ */
+public class IslandSolver extends Solver {
+	/**
+	 * The islands.
+	 */
+	final Solver[] islands;
+	
+	/**
+	 * Latest individuals published by each island.
+	 */
+	final AtomicReferenceArray<IndividualWithFitness[]> outboxes;
+	
+	/**
+	 * Best fitness found so far, by any island.
+	 */
+	volatile double global_best_fitness = Double.POSITIVE_INFINITY;
+	
+	/**
+	 * Set when any island detects that the search should stop.
+	 */
+	volatile boolean stop = false;
+	
+	public IslandSolver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor) {
+		this(params, generator, evaluator, visitor, null);
+	}
+	
+	public IslandSolver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor, final IndividualArena arena) {
+		super(params, generator, evaluator, visitor, arena, new WorkerPool(ExecutionMode.SEQUENTIAL, 1, 0), false, params.random_seed);
+		if(params.checkpoint_file != null) { throw new IllegalArgumentException("The island solver does not support checkpoints"); }
+		
+		this.islands = new Solver[params.n_islands];
+		this.outboxes = new AtomicReferenceArray<IndividualWithFitness[]>(params.n_islands);
+		
+		// Share the threads among the islands
+		final int threads_per_island = Math.max(1, params.n_threads / params.n_islands);
+		final ExecutionMode mode = (threads_per_island == 1) ? ExecutionMode.SEQUENTIAL : params.execution_mode;
+		
+		for(int i = 0; i < islands.length; i++) {
+			final long island_seed = RandomStream.mix(params.random_seed + (i + 1) * RandomStream.GOLDEN_GAMMA);
+			islands[i] = new Solver(params, generator, evaluator, visitor, arena, new WorkerPool(mode, threads_per_island, params.chunk_size), true, island_seed);
+		}
+	}
+	
+	@Override
+	public IndividualWithFitness solve() {
+		final long start_time = System.nanoTime();
+		final int[] generations = new int[islands.length];
+		final ExecutorService es = Executors.newFixedThreadPool(islands.length);
+		final List<Future<?>> runs = new ArrayList<Future<?>>(islands.length);
+		
+		// Start afresh, even if this solver already ran
+		global_best_fitness = Double.POSITIVE_INFINITY;
+		stop = false;
+		for(int i = 0; i < islands.length; i++) { outboxes.set(i, null); }
+		
+		// All the islands share the same deadline and cancellation token
+		termination = new Termination(params, start_time, cancellation);
+		for(final Solver island : islands) { island.termination = termination; }
+		
+		for(final Solver island : islands) { if(island.metrics != null) { island.metrics.register(); } }
+		
+		for(int i = 0; i < islands.length; i++) {
+			final int island = i;
+			runs.add(es.submit(() -> { generations[island] = run_island(island, start_time); }));
+		}
+		
+		try {
+			for(final Future<?> run : runs) { run.get(); }
+		} catch(InterruptedException | ExecutionException e) {
+			System.err.println("Fatal error while evolving the islands.");
+			e.printStackTrace();
+			System.exit(1);
+		}
+		es.shutdown();
+		
+		visitor.at_end(this, generations[0], seconds_since(start_time));
+		
+		for(final Solver island : islands) {
+			island.pool.shutdown();
+			if(island.metrics != null) { island.metrics.unregister(); }
+			island.termination = null;
+		}
+		termination = null;
+		
+		return best();
+	}
+	
+	/**
+	 * Evolves one island until the search is over.
+	 * @return	The number of generations evolved.
+	 */
+	int run_island(final int island, final long start_time) {
+		final Solver solver = islands[island];
+		final RandomStream prng = new RandomStream(0).reset(solver.seed, -1, island);
+		final IndividualWithFitness[][] last_received = new IndividualWithFitness[islands.length][];
+		
+		int generation = 0;
+		int generations_no_improvement = 0;
+		
+		solver.initialise_population();
+		update_global_best(solver.best_fitness());
+		
+		while(!stop) {
+			if(generation >= params.max_generations || termination.expired()) { stop = true; break; }
+			
+			final double elapsed_time_s = seconds_since(start_time);
+			
+			final double previous_best = global_best_fitness;
+			solver.evolve();
+			if(solver.abandoned) { stop = true; break; }
+			update_global_best(solver.best_fitness());
+			
+			if(generation > 0 && generation % params.migration_interval == 0) {
+				migrate(island, prng, last_received);
+			}
+			
+			// The first island keeps track of the global improvements, and informs the visitor
+			if(island == 0) {
+				if(global_best_fitness < previous_best - IMPROVEMENT_EPS) { generations_no_improvement = 0; } else { generations_no_improvement++; }
+				if(termination.search_over(this, generation + 1, generations_no_improvement)) { stop = true; }
+				
+				if(generation % visitor.observe_every_n_iterations == 0) {
+					visitor.at_fixed_number_of_iterations(this, generation, elapsed_time_s);
+					if(solver.metrics != null) { visitor.at_metrics(this, generation, solver.metrics); }
+				}
+			}
+			
+			generation++;
+			
+			// Restart the island if its elite collapsed (only the first island informs the visitor)
+			if(params.diversity_threshold > 0 && generation % params.diversity_check_interval == 0) {
+				final double diversity = solver.measure_diversity();
+				if(diversity < params.diversity_threshold) {
+					solver.restart();
+					if(island == 0) { visitor.at_restart(this, generation, diversity); }
+				}
+			}
+		}
+		
+		return generation;
+	}
+	
+	/**
+	 * Publishes the best individuals of an island, and takes in those published by its sources.
+	 * @param last_received	The individuals last taken in from each island, so we do not take them twice.
+	 */
+	void migrate(final int island, final RandomStream prng, final IndividualWithFitness[][] last_received) {
+		final Solver solver = islands[island];
+		outboxes.set(island, solver.emigrants(params.migrants_num));
+		
+		final List<IndividualWithFitness> incoming = new ArrayList<IndividualWithFitness>();
+		for(final int source : params.migration_topology.sources(island, islands.length, prng)) {
+			final IndividualWithFitness[] published = outboxes.get(source);
+			if(published == null || published == last_received[source]) { continue; }
+			
+			incoming.addAll(Arrays.asList(published));
+			last_received[source] = published;
+		}
+		
+		if(incoming.isEmpty()) { return; }
+		
+		// When receiving from many islands, only keep the best
+		incoming.sort(null);
+		solver.immigrate(incoming.subList(0, Math.min(params.migrants_num, incoming.size())).toArray(new IndividualWithFitness[0]));
+	}
+	
+	synchronized void update_global_best(final double fitness) {
+		if(fitness < global_best_fitness) { global_best_fitness = fitness; }
+	}
+	
+	@Override
+	public SolverMetrics metrics() {
+		return islands[0].metrics;
+	}
+	
+	@Override
+	public double diversity() {
+		return islands[0].diversity();
+	}
+	
+	@Override
+	public double best_fitness() {
+		return global_best_fitness;
+	}
+	
+	/**
+	 * Best individual across all islands (only meaningful when the islands are not running).
+	 */
+	IndividualWithFitness best() {
+		IndividualWithFitness best = null;
+		for(final Solver island : islands) {
+			if(best == null || island.best_fitness() < best.fitness) { best = island.population.best(); }
+		}
+		return best;
+	}
+}
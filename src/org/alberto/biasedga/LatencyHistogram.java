@@ -0,0 +1,67 @@
+package org.alberto.biasedga;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations (in nanoseconds), which any number of threads can update
+ * without locks. Bucket b counts the durations in [2^(b-1), 2^b), so quantiles are
+ * only known up to a factor of two, which is plenty to spot where the time goes.
+ * @author alberto
+ *
+ */
+class LatencyHistogram {
+	/**
+	 * One bucket for 0, and one for each possible bit length of a positive long.
+	 */
+	static final int BUCKETS = 64;
+
+	/**
+	 * Number of durations in each bucket.
+	 */
+	final LongAdder[] counts;
+
+	/**
+	 * Sum of all the durations.
+	 */
+	final LongAdder total;
+
+	LatencyHistogram() {
+		this.counts = new LongAdder[BUCKETS];
+		this.total = new LongAdder();
+
+		for(int b = 0; b < BUCKETS; b++) { counts[b] = new LongAdder(); }
+	}
+
+	void record(final long nanos) {
+		final long duration = Math.max(0, nanos);
+		counts[64 - Long.numberOfLeadingZeros(duration)].increment();
+		total.add(duration);
+	}
+
+	long count() {
+		long count = 0;
+		for(int b = 0; b < BUCKETS; b++) { count += counts[b].sum(); }
+		return count;
+	}
+
+	double mean() {
+		final long count = count();
+		return (count == 0) ? 0 : (double) total.sum() / count;
+	}
+
+	/**
+	 * Upper bound of the q-quantile of the durations (0 if there are none).
+	 */
+	long quantile(final double q) {
+		final long count = count();
+		if(count == 0) { return 0; }
+
+		final long rank = (long) Math.ceil(q * count);
+		long seen = 0;
+		for(int b = 0; b < BUCKETS; b++) {
+			seen += counts[b].sum();
+			if(seen >= rank) { return (b == 0) ? 0 : (1L << b) - 1; }
+		}
+		return Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,43 @@
+package org.alberto.biasedga;
+
+/**
+ * Which islands send their best individuals to which other islands, in the island model.
+ * @author alberto
+ *
+ */
+public enum MigrationTopology {
+	/**
+	 * Island i receives from island i - 1 (and island 0 from the last one).
+	 */
+	RING,
+	
+	/**
+	 * Each island receives from all the others, and keeps the best individuals among all it receives.
+	 */
+	FULLY_CONNECTED,
+	
+	/**
+	 * At each migration, each island receives from another island chosen at random.
+	 */
+	RANDOM;
+	
+	/**
+	 * The islands from which ``island'' receives individuals at a migration.
+	 */
+	int[] sources(final int island, final int n_islands, final RandomStream prng) {
+		if(n_islands < 2) { return new int[0]; }
+		
+		switch(this) {
+			case FULLY_CONNECTED: {
+				final int[] sources = new int[n_islands - 1];
+				for(int j = 0, k = 0; j < n_islands; j++) { if(j != island) { sources[k++] = j; } }
+				return sources;
+			}
+			case RANDOM: {
+				final int j = prng.next_int(n_islands - 1);
+				return new int[] { (j < island) ? j : j + 1 };
+			}
+			default: return new int[] { (island + n_islands - 1) % n_islands };
+		}
+	}
+}
@@ -41,10 +41,150 @@ public class Parameters {
 	 */
 	final int timeout_s;
 	
+	/**
+	 * Backend used to decode and evaluate individuals in parallel.
+	 */
+	final ExecutionMode execution_mode;
+	
+	/**
+	 * Number of worker threads.
+	 */
+	final int n_threads;
+	
+	/**
+	 * Number of individuals handed to a worker at once (0 means: choose automatically).
+	 */
+	final int chunk_size;
+	
+	/**
+	 * Number of independent populations evolved concurrently by IslandSolver.
+	 */
+	final int n_islands;
+	
+	/**
+	 * Number of generations between two migrations of individuals between islands.
+	 */
+	final int migration_interval;
+	
+	/**
+	 * Number of individuals sent by each island at each migration.
+	 */
+	final int migrants_num;
+	
+	/**
+	 * Which islands exchange individuals.
+	 */
+	final MigrationTopology migration_topology;
+	
+	/**
+	 * Seed from which the solver derives all its random numbers.
+	 */
+	final long random_seed;
+	
+	/**
+	 * Whether the solver records where the time of each generation goes (see SolverMetrics).
+	 */
+	final boolean collect_metrics;
+	
+	/**
+	 * The solver stops as soon as it finds an individual with this fitness, or a lower one.
+	 */
+	final double target_fitness;
+	
+	/**
+	 * Additional condition under which the solver stops (null if there is none).
+	 */
+	final TerminationCriterion termination_criterion;
+	
+	/**
+	 * Token through which other threads can stop the solver (null to let each solver have its own).
+	 */
+	final CancellationToken cancellation_token;
+	
+	/**
+	 * File where the solver saves its checkpoints (null not to save any). IslandSolver does not save any.
+	 */
+	final String checkpoint_file;
+	
+	/**
+	 * Number of generations between two checkpoints.
+	 */
+	final int checkpoint_interval;
+	
+	/**
+	 * Number of random individuals generated for the initial population, as a multiple of
+	 * population_size (at least 1): only the best population_size are kept.
+	 */
+	final double initial_population_factor;
+	
+	/**
+	 * When the diversity of the elite falls below this value (between 0 and 1), the solver
+	 * restarts the population, except for the best individuals (0 never to restart).
+	 */
+	final double diversity_threshold;
+	
+	/**
+	 * Number of generations between two measurements of the diversity of the elite.
+	 */
+	final int diversity_check_interval;
+	
+	/**
+	 * Number of pairs of elite individuals compared to measure their diversity.
+	 */
+	final int diversity_samples;
+	
+	/**
+	 * Fraction of the population which survives a restart (at least the best individual).
+	 */
+	final double restart_survivors_share;
+	
+	/**
+	 * Parameters with the given population, shares and budgets, and the defaults of
+	 * ParametersBuilder for everything else (including a fresh random seed).
+	 */
 	public Parameters(
 			final int population_size, final double elite_share, final double new_individuals_share,
 			final double bias, final int max_generations, final int max_generations_no_improvement,
 			final int timeout_s
+	) {
+		this(new ParametersBuilder()
+				.with_population_size(population_size)
+				.with_elite_share(elite_share)
+				.with_new_individuals_share(new_individuals_share)
+				.with_bias(bias)
+				.with_max_generations(max_generations)
+				.with_max_generations_no_improvement(max_generations_no_improvement)
+				.with_timeout_s(timeout_s)
+				.build());
+	}
+	
+	/**
+	 * Copy of ``other''.
+	 */
+	private Parameters(final Parameters other) {
+		this(
+				other.population_size, other.elite_share, other.new_individuals_share,
+				other.bias, other.max_generations, other.max_generations_no_improvement,
+				other.timeout_s, other.execution_mode, other.n_threads, other.chunk_size,
+				other.n_islands, other.migration_interval, other.migrants_num, other.migration_topology,
+				other.random_seed, other.collect_metrics,
+				other.target_fitness, other.termination_criterion, other.cancellation_token,
+				other.checkpoint_file, other.checkpoint_interval,
+				other.initial_population_factor,
+				other.diversity_threshold, other.diversity_check_interval, other.diversity_samples, other.restart_survivors_share
+		);
+	}
+	
+	Parameters(
+			final int population_size, final double elite_share, final double new_individuals_share,
+			final double bias, final int max_generations, final int max_generations_no_improvement,
+			final int timeout_s, final ExecutionMode execution_mode, final int n_threads, final int chunk_size,
+			final int n_islands, final int migration_interval, final int migrants_num, final MigrationTopology migration_topology,
+			final long random_seed, final boolean collect_metrics,
+			final double target_fitness, final TerminationCriterion termination_criterion, final CancellationToken cancellation_token,
+			final String checkpoint_file, final int checkpoint_interval,
+			final double initial_population_factor,
+			final double diversity_threshold, final int diversity_check_interval, final int diversity_samples, final double restart_survivors_share
 	) {
 		this.population_size = population_size;
 		this.elite_share = elite_share;
@@ -53,5 +193,24 @@ public class Parameters {
 		this.max_generations = max_generations;
 		this.max_generations_no_improvement = max_generations_no_improvement;
 		this.timeout_s = timeout_s;
+		this.execution_mode = execution_mode;
+		this.n_threads = n_threads;
+		this.chunk_size = chunk_size;
+		this.n_islands = n_islands;
+		this.migration_interval = migration_interval;
+		this.migrants_num = migrants_num;
+		this.migration_topology = migration_topology;
+		this.random_seed = random_seed;
+		this.collect_metrics = collect_metrics;
+		this.target_fitness = target_fitness;
+		this.termination_criterion = termination_criterion;
+		this.cancellation_token = cancellation_token;
+		this.checkpoint_file = checkpoint_file;
+		this.checkpoint_interval = checkpoint_interval;
+		this.initial_population_factor = initial_population_factor;
+		this.diversity_threshold = diversity_threshold;
+		this.diversity_check_interval = diversity_check_interval;
+		this.diversity_samples = diversity_samples;
+		this.restart_survivors_share = restart_survivors_share;
 	}
 }
@@ -1,5 +1,7 @@
 package org.alberto.biasedga;
 
+import java.util.SplittableRandom;
+
 /**
  * Convenient builder class for Parameters.
  * @author alberto
@@ -13,6 +15,25 @@ public class ParametersBuilder {
 	int max_generations = Integer.MAX_VALUE;
 	int max_generations_no_improvement = Integer.MAX_VALUE;
 	int timeout_s = Integer.MAX_VALUE;
+	ExecutionMode execution_mode = ExecutionMode.FIXED_THREADS;
+	int n_threads = Runtime.getRuntime().availableProcessors();
+	int chunk_size = 0;
+	int n_islands = 4;
+	int migration_interval = 50;
+	int migrants_num = 2;
+	MigrationTopology migration_topology = MigrationTopology.RING;
+	Long random_seed = null; // Drawn anew by each build(), unless set
+	boolean collect_metrics = false;
+	double target_fitness = Double.NEGATIVE_INFINITY;
+	TerminationCriterion termination_criterion = null;
+	CancellationToken cancellation_token = null;
+	String checkpoint_file = null;
+	int checkpoint_interval = 100;
+	double initial_population_factor = 1.0;
+	double diversity_threshold = 0.0;
+	int diversity_check_interval = 10;
+	int diversity_samples = 32;
+	double restart_survivors_share = 0.05;
 	
 	public ParametersBuilder with_population_size(final int population_size) { this.population_size = population_size; return this; }
 	public ParametersBuilder with_elite_share(final double elite_share) { this.elite_share = elite_share; return this; }
@@ -21,5 +42,24 @@ public class ParametersBuilder {
 	public ParametersBuilder with_max_generations(final int max_generations) { this.max_generations = max_generations; return this; }
 	public ParametersBuilder with_max_generations_no_improvement(final int max_generations_no_improvement) { this.max_generations_no_improvement = max_generations_no_improvement; return this; }
 	public ParametersBuilder with_timeout_s(final int timeout_s) { this.timeout_s = timeout_s; return this; }
-	public Parameters build() { return new Parameters(population_size, elite_share, new_individuals_share, bias, max_generations, max_generations_no_improvement, timeout_s); }
+	public ParametersBuilder with_execution_mode(final ExecutionMode execution_mode) { this.execution_mode = execution_mode; return this; }
+	public ParametersBuilder with_n_threads(final int n_threads) { this.n_threads = n_threads; return this; }
+	public ParametersBuilder with_chunk_size(final int chunk_size) { this.chunk_size = chunk_size; return this; }
+	public ParametersBuilder with_n_islands(final int n_islands) { this.n_islands = n_islands; return this; }
+	public ParametersBuilder with_migration_interval(final int migration_interval) { this.migration_interval = migration_interval; return this; }
+	public ParametersBuilder with_migrants_num(final int migrants_num) { this.migrants_num = migrants_num; return this; }
+	public ParametersBuilder with_migration_topology(final MigrationTopology migration_topology) { this.migration_topology = migration_topology; return this; }
+	public ParametersBuilder with_random_seed(final long random_seed) { this.random_seed = random_seed; return this; }
+	public ParametersBuilder with_metrics(final boolean collect_metrics) { this.collect_metrics = collect_metrics; return this; }
+	public ParametersBuilder with_target_fitness(final double target_fitness) { this.target_fitness = target_fitness; return this; }
+	public ParametersBuilder with_termination_criterion(final TerminationCriterion termination_criterion) { this.termination_criterion = termination_criterion; return this; }
+	public ParametersBuilder with_cancellation_token(final CancellationToken cancellation_token) { this.cancellation_token = cancellation_token; return this; }
+	public ParametersBuilder with_checkpoint_file(final String checkpoint_file) { this.checkpoint_file = checkpoint_file; return this; }
+	public ParametersBuilder with_checkpoint_interval(final int checkpoint_interval) { this.checkpoint_interval = checkpoint_interval; return this; }
+	public ParametersBuilder with_initial_population_factor(final double initial_population_factor) { this.initial_population_factor = initial_population_factor; return this; }
+	public ParametersBuilder with_diversity_threshold(final double diversity_threshold) { this.diversity_threshold = diversity_threshold; return this; }
+	public ParametersBuilder with_diversity_check_interval(final int diversity_check_interval) { this.diversity_check_interval = diversity_check_interval; return this; }
+	public ParametersBuilder with_diversity_samples(final int diversity_samples) { this.diversity_samples = diversity_samples; return this; }
+	public ParametersBuilder with_restart_survivors_share(final double restart_survivors_share) { this.restart_survivors_share = restart_survivors_share; return this; }
+	public Parameters build() { return new Parameters(population_size, elite_share, new_individuals_share, bias, max_generations, max_generations_no_improvement, timeout_s, execution_mode, n_threads, chunk_size, n_islands, migration_interval, migrants_num, migration_topology, (random_seed != null) ? random_seed : new SplittableRandom().nextLong(), collect_metrics, target_fitness, termination_criterion, cancellation_token, checkpoint_file, checkpoint_interval, initial_population_factor, diversity_threshold, diversity_check_interval, diversity_samples, restart_survivors_share); }
 }
@@ -0,0 +1,165 @@
+package org.alberto.biasedga;
+
+
+/**
+ * Population of the genetic algorithm, stored as plain arrays. Each individual
+ * lives in a fixed slot, so that workers can fill different slots concurrently
+ * without any locking. The individuals are ranked through an array of slot
+ * indices, which we only partially sort: we only ever need to know which
+ * individuals are elite, and which one is the best.
+ * @author alberto
+ *
+ */
+public class Population {
+	/**
+	 * The individuals, one per slot.
+	 */
+	final Individual[] individuals;
+	
+	/**
+	 * Fitness of the individual in each slot.
+	 */
+	final double[] fitness;
+	
+	/**
+	 * Slot indices. After a call to rank(k), the first k are the slots of the k best
+	 * individuals (in no particular order, except the best one, which is the first).
+	 */
+	final int[] order;
+	
+	public Population(final int size) {
+		this(new Individual[size]);
+	}
+	
+	/**
+	 * Builds a population whose slots are already filled with (pre-allocated) individuals.
+	 */
+	public Population(final Individual[] individuals) {
+		this.individuals = individuals;
+		this.fitness = new double[individuals.length];
+		this.order = new int[individuals.length];
+	}
+	
+	public int size() {
+		return individuals.length;
+	}
+	
+	/**
+	 * Puts an individual in a slot.
+	 */
+	void set(final int slot, final Individual individual, final double fitness) {
+		this.individuals[slot] = individual;
+		this.fitness[slot] = fitness;
+	}
+	
+	/**
+	 * Partially sorts the slots so that the first ``elite_size'' elements of ``order''
+	 * are the best individuals, and order[0] is the very best one.
+	 */
+	void rank(final int elite_size) {
+		for(int i = 0; i < order.length; i++) { order[i] = i; }
+		
+		final int k = Math.max(1, Math.min(elite_size, order.length));
+		select(0, k);
+		
+		// Bring the best elite to the front
+		int best = 0;
+		for(int i = 1; i < k; i++) {
+			if(fitness[order[i]] < fitness[order[best]]) { best = i; }
+		}
+		swap(0, best);
+	}
+	
+	/**
+	 * Partially sorts the slots so that order[from], ..., order[from + k - 1] are the best
+	 * individuals among slots from, ..., n-1, leaving the first ``from'' slots aside.
+	 */
+	void rank_from(final int from, final int k) {
+		for(int i = 0; i < order.length; i++) { order[i] = i; }
+		
+		select(from, Math.min(k, order.length - from));
+	}
+	
+	/**
+	 * Sorts the first ``count'' slots from the best individual to the worst, in order[0],
+	 * ..., order[count-1]: a quicksort with the same partitioning as select, in place.
+	 */
+	void sort(final int count) {
+		for(int i = 0; i < order.length; i++) { order[i] = i; }
+		
+		sort(0, count - 1);
+	}
+	
+	void sort(int lo, int hi) {
+		while(lo < hi) {
+			final int j = partition(lo, hi);
+			
+			// Recur on the smaller part, so that the stack stays logarithmic
+			if(j - lo < hi - j) { sort(lo, j); lo = j + 1; } else { sort(j + 1, hi); hi = j; }
+		}
+	}
+	
+	/**
+	 * Slot of the best individual (only valid after a call to rank).
+	 */
+	int best_slot() {
+		return order[0];
+	}
+	
+	public double best_fitness() {
+		return fitness[best_slot()];
+	}
+	
+	public IndividualWithFitness best() {
+		return new IndividualWithFitness(individuals[best_slot()], best_fitness());
+	}
+	
+	/**
+	 * Quickselect: rearranges order[from], ..., order[n-1] so that the k slots with lowest
+	 * fitness come first. We use Hoare's partitioning, which keeps the ranges balanced also
+	 * when many individuals have the same fitness.
+	 */
+	void select(final int from, final int k) {
+		int lo = from;
+		int hi = order.length - 1;
+		
+		while(lo < hi) {
+			final int j = partition(lo, hi);
+			if(from + k - 1 <= j) { hi = j; } else { lo = j + 1; }
+		}
+	}
+	
+	/**
+	 * Hoare's partitioning of order[lo..hi], around the median of three of its slots.
+	 * @return j such that order[lo..j] <= pivot <= order[j+1..hi], with lo <= j < hi
+	 */
+	int partition(final int lo, final int hi) {
+		final double pivot = fitness[order[median_of_three(lo, (lo + hi) >>> 1, hi)]];
+		int i = lo - 1;
+		int j = hi + 1;
+		
+		while(true) {
+			do { i++; } while(fitness[order[i]] < pivot);
+			do { j--; } while(fitness[order[j]] > pivot);
+			if(i >= j) { return j; }
+			swap(i, j);
+		}
+	}
+	
+	int median_of_three(final int a, final int b, final int c) {
+		final double fa = fitness[order[a]], fb = fitness[order[b]], fc = fitness[order[c]];
+		if(fa < fb) {
+			if(fb < fc) { return b; }
+			return (fa < fc) ? c : a;
+		} else {
+			if(fa < fc) { return a; }
+			return (fb < fc) ? c : b;
+		}
+	}
+	
+	void swap(final int i, final int j) {
+		final int tmp = order[i];
+		order[i] = order[j];
+		order[j] = tmp;
+	}
+}
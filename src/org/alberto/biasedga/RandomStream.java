@@ -0,0 +1,79 @@
+package org.alberto.biasedga;
+
+/**
+ * Small, fast pseudo-random number generator (SplitMix64), which the solver
+ * uses to give each task its own stream of random numbers. A stream is
+ * identified by the solver's seed and by two keys (e.g. generation and slot of
+ * the individual being produced): the numbers a task gets only depend on these,
+ * and not on which thread runs the task, nor on when. Streams are mutable and
+ * can be reset, so that each thread can reuse one object for all its tasks.
+ * Streams are not thread-safe.
+ * @author alberto
+ *
+ */
+public class RandomStream {
+	/**
+	 * Increment of the SplitMix64 counter (the golden ratio).
+	 */
+	static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	/**
+	 * Current state: the counter.
+	 */
+	long state;
+	
+	public RandomStream(final long seed) {
+		this.state = seed;
+	}
+	
+	/**
+	 * Restarts this object as the stream identified by ``seed'' and by the two keys.
+	 */
+	public RandomStream reset(final long seed, final long key1, final long key2) {
+		this.state = mix(seed ^ mix(key1 * GOLDEN_GAMMA ^ mix(key2 + GOLDEN_GAMMA)));
+		return this;
+	}
+	
+	public long next_long() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+	
+	/**
+	 * Uniform double in [0, 1).
+	 */
+	public double next_double() {
+		return (next_long() >>> 11) * 0x1.0p-53;
+	}
+	
+	/**
+	 * Uniform int in [0, bound), without modulo bias.
+	 */
+	public int next_int(final int bound) {
+		if(bound <= 0) { throw new IllegalArgumentException("bound must be positive"); }
+		
+		int r = (int) (next_long() >>> 33);
+		final int m = bound - 1;
+		
+		if((bound & m) == 0) { return (int) ((bound * (long) r) >> 31); }
+		
+		for(int u = r; u - (r = u % bound) + m < 0; u = (int) (next_long() >>> 33)) {}
+		return r;
+	}
+	
+	/**
+	 * Copy of the current state, to save and later restore the stream.
+	 */
+	public long state() {
+		return state;
+	}
+	
+	/**
+	 * SplitMix64 finaliser.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
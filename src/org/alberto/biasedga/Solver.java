@@ -1,15 +1,8 @@
 package org.alberto.biasedga;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.io.IOException;
+
+import org.alberto.biasedga.SolverMetrics.Phase;
 
 /**
  * Solver for the Biased Genetic Algorithm.
@@ -38,13 +31,24 @@ public class Solver {
 	final SolverVisitor visitor;
 	
 	/**
-	 * Population, i.e. list of individuals -- which we conveniently keep sorted by fitness.
+	 * Population, i.e. list of individuals -- which we conveniently keep ranked by fitness.
 	 * Please notice that fitness is an apt name only in case of maximisation problems. In case
 	 * of minimisation problems, we actually prefer the individuals with the lowest ``fitness''.
 	 * If you want to resolve this ambiguity, have your IndividualEvaluator return, e.g., the
 	 * negative objective value, when you have a minimisation problem.
 	 */
-	SortedSet<IndividualWithFitness> population;
+	Population population;
+	
+	/**
+	 * Where the individuals' chromosomes live, when we evolve them in place (null otherwise).
+	 */
+	final IndividualArena arena;
+	
+	/**
+	 * Buffer where we build the next generation. It is swapped with ``population''
+	 * at the end of each generation, so that we never allocate new populations.
+	 */
+	Population offspring;
 	
 	/**
 	 * Number of elite individuals in the population.
@@ -57,71 +61,454 @@ public class Solver {
 	final int new_individuals_size;
 	
 	/**
-	 * Number of concurrent threads we can use for parallel decoding of individuals.
+	 * Elite parent of each individual generated by crossover, at the same position as the
+	 * individual in the new generation. Evaluators can use it to evaluate children incrementally.
+	 */
+	final Individual[] elite_parents;
+	
+	/**
+	 * Threads used for parallel decoding of individuals, which live as long as each solve().
+	 */
+	final WorkerPool pool;
+	
+	/**
+	 * Seed from which all the random streams of this solver are derived.
+	 */
+	final long seed;
+	
+	/**
+	 * Where the time of each generation goes (null if we are not collecting metrics).
+	 */
+	final SolverMetrics metrics;
+	
+	/**
+	 * Token through which other threads can stop the solver.
+	 */
+	final CancellationToken cancellation;
+	
+	/**
+	 * Decides when the current run is over (null when we are not running).
+	 */
+	Termination termination = null;
+	
+	/**
+	 * Set by the workers when they abandon the generation in flight, because the run is over.
+	 */
+	volatile boolean abandoned = false;
+	
+	/**
+	 * Checkpoint from which the next run resumes (null to start from a random population).
 	 */
-	final static int N_THREADS = 4;
+	Checkpoint resume_from = null;
+	
+	/**
+	 * Diversity of the elite, when we last measured it (NaN if we never did).
+	 */
+	double diversity = Double.NaN;
+	
+	/**
+	 * Whether the individuals support Individual.distance (null until we find out).
+	 */
+	Boolean distance_supported = null;
+	
+	/**
+	 * Number of the generation being evolved (0 while initialising the population).
+	 */
+	int generation;
+	
+	/**
+	 * Random stream of each thread, reset before producing each individual: the numbers used to
+	 * produce an individual only depend on the seed, the generation and the individual's slot.
+	 */
+	final ThreadLocal<RandomStream> streams = ThreadLocal.withInitial(() -> new RandomStream(0));
+	
+	/**
+	 * Minimum decrease of the best fitness which counts as an improvement.
+	 */
+	static final double IMPROVEMENT_EPS = 1e-6;
 	
 	public Solver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor) {
+		this(params, generator, evaluator, visitor, null);
+	}
+	
+	/**
+	 * Builds a solver which keeps both the current and the next generation in two blocks
+	 * allocated by ``arena'', and overwrites them in place rather than creating new individuals.
+	 */
+	public Solver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor, final IndividualArena arena) {
+		this(params, generator, evaluator, visitor, arena, new WorkerPool(params), true, params.random_seed);
+	}
+	
+	/**
+	 * Builds a solver which resumes exactly where the one which saved ``checkpoint'' left off
+	 * (see ParametersBuilder.with_checkpoint_file): same population, same random streams, and
+	 * the same generation and no-improvement counters. The parameters (in particular, the
+	 * population size, and the kind of individuals) must be the same; only the termination
+	 * criteria can change, e.g. to give the run a bigger budget. The timeout counts from the
+	 * start of the resumed run.
+	 */
+	public Solver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor, final IndividualArena arena, final Checkpoint checkpoint) {
+		this(params, generator, evaluator, visitor, arena, new WorkerPool(params), true, checkpoint.seed);
+		this.resume_from = checkpoint;
+	}
+	
+	/**
+	 * Builds a solver which runs on the given worker pool. Subclasses which do not evolve a
+	 * population of their own (e.g. IslandSolver) can skip allocating it.
+	 */
+	Solver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor, final IndividualArena arena, final WorkerPool pool, final boolean allocate_population, final long seed) {
 		this.params = params;
 		this.generator = generator;
 		this.evaluator = evaluator;
 		this.visitor = visitor;
-		this.population = new TreeSet<IndividualWithFitness>();
+		this.arena = arena;
+		this.population = allocate_population ? new_population() : null;
+		this.offspring = allocate_population ? new_population() : null;
 		this.elite_size = (int) (params.population_size * params.elite_share);
 		this.new_individuals_size = (int) (params.population_size * params.new_individuals_share);
+		this.elite_parents = allocate_population ? new Individual[params.population_size] : null;
+		this.pool = pool;
+		this.seed = seed;
+		this.generation = 0;
+		this.metrics = (params.collect_metrics && allocate_population) ? new SolverMetrics(pool.parallelism()) : null;
+		this.pool.metrics = metrics;
+		this.cancellation = (params.cancellation_token != null) ? params.cancellation_token : new CancellationToken();
 	}
 	
+	Population new_population() {
+		return (arena == null) ? new Population(params.population_size) : new Population(arena.allocate(params.population_size));
+	}
+	
+	/**
+	 * Runs the search and returns the best individual found. Each call starts from a new
+	 * population (except the first one of a solver built from a checkpoint), with the
+	 * same random streams, and the worker threads only live until it returns.
+	 */
 	public IndividualWithFitness solve() {
 		int generation = 0;
 		int generations_no_improvement = 0;
 		long start_time = System.nanoTime();
 		
-		double eps = 1e-6;
+		termination = new Termination(params, start_time, cancellation);
+		if(metrics != null) { metrics.register(); }
 		
-		// Create the initial population
-		initialise_population();
+		final CheckpointWriter checkpoints = (params.checkpoint_file == null) ? null : new CheckpointWriter(params.checkpoint_file);
+		
+		// Create the initial population, or take it from the checkpoint
+		if(resume_from == null) {
+			initialise_population();
+		} else {
+			restore(resume_from);
+			generation = resume_from.generation;
+			generations_no_improvement = resume_from.generations_no_improvement;
+			resume_from = null;
+		}
 				
-		while(generation < params.max_generations && generations_no_improvement < params.max_generations_no_improvement) {
-			long current_time = System.nanoTime();
-			double elapsed_time_s = (current_time - start_time) / 10e9;
-			
-			if(elapsed_time_s > params.timeout_s) { break; }
+		while(!termination.should_stop(this, generation, generations_no_improvement)) {
+			double elapsed_time_s = seconds_since(start_time);
 			
-			// Evolve a new generation
-			SortedSet<IndividualWithFitness> new_gen = evolve_new_generation();
+			// Evolve a new generation, and check whether there has been a (strictly positive) improvement
+			if(evolve()) { generations_no_improvement = 0; } else { generations_no_improvement++; }
 			
-			// Check whether there has been a (strictly positive) improvement
-			if(new_gen.first().fitness >= population.first().fitness - eps) { generations_no_improvement++; } else { generations_no_improvement = 0; }
-			
-			// Replace the old population with the new generation
-			population = new_gen;
+			// The time ran out, or we were cancelled, half-way through the generation
+			if(abandoned) { break; }
 			
 			// Call the visitor every now and then
 			if(generation % visitor.observe_every_n_iterations == 0) {
 				visitor.at_fixed_number_of_iterations(this, generation, elapsed_time_s);
+				if(metrics != null) { visitor.at_metrics(this, generation, metrics); }
 			}
 			
 			generation++;
+			
+			// Restart the population every now and then, if it collapsed onto copies of the same few individuals
+			if(params.diversity_threshold > 0 && generation % params.diversity_check_interval == 0) {
+				final double diversity = measure_diversity();
+				if(diversity < params.diversity_threshold) {
+					restart();
+					visitor.at_restart(this, generation, diversity);
+				}
+			}
+			
+			// Save a checkpoint every now and then, in the background
+			if(checkpoints != null && generation % params.checkpoint_interval == 0) {
+				checkpoints.offer(this, generations_no_improvement);
+			}
 		}
 		
-		long end_time = System.nanoTime();
-		double total_time_s = (end_time - start_time) / 10e9;
+		if(checkpoints != null) { checkpoints.close(this, generations_no_improvement); }
+		
+		double total_time_s = seconds_since(start_time);
 		
 		// Call the visitor for the end action
 		visitor.at_end(this, generation, total_time_s);
 		
+		// Release the worker threads (the next solve() starts new ones)
+		pool.shutdown();
+		if(metrics != null) { metrics.unregister(); }
+		termination = null;
+		
 		// Return the best individual in the population
 		// N.B. this is the best individual ever encountered: since
 		// we copy the elite members, there is no risk that the best
 		// individual in a generation is not included in the next one
-		return population.first();
+		return population.best();
+	}
+	
+	/**
+	 * Fitness of the best individual in the current population.
+	 */
+	public double best_fitness() {
+		return population.best_fitness();
+	}
+	
+	/**
+	 * Diversity of the elite, between 0 and 1, when the solver last measured it (NaN if it never did).
+	 */
+	public double diversity() {
+		return diversity;
+	}
+	
+	/**
+	 * Metrics collected so far (null if the solver is not collecting them).
+	 */
+	public SolverMetrics metrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Asks the solver to stop as soon as possible, abandoning the generation in flight.
+	 * Can be called from any thread. Solvers sharing the same cancellation token
+	 * (see ParametersBuilder.with_cancellation_token) stop too.
+	 */
+	public void cancel() {
+		cancellation.cancel();
+	}
+	
+	/**
+	 * Time elapsed since ``start_time'' (as given by System.nanoTime).
+	 */
+	static double seconds_since(final long start_time) {
+		return (System.nanoTime() - start_time) / 1e9;
+	}
+	
+	/**
+	 * Evolves a new generation, and replaces the current population with it. If the
+	 * workers abandon the generation half-way through, the current population is kept.
+	 * @return Whether the best fitness improved.
+	 */
+	boolean evolve() {
+		generation++;
+		abandoned = false;
+		if(metrics != null) { metrics.start_generation(); }
+		
+		final Population new_gen = evolve_new_generation();
+		
+		if(abandoned) {
+			generation--;
+			if(metrics != null) { metrics.end_generation(generation, population.best_fitness()); }
+			return false;
+		}
+		
+		final boolean improved = new_gen.best_fitness() < population.best_fitness() - IMPROVEMENT_EPS;
+		
+		if(metrics != null) { metrics.end_generation(generation, new_gen.best_fitness()); }
+		
+		// Replace the old population with the new generation, and recycle the old one
+		offspring = population;
+		population = new_gen;
+		
+		return improved;
+	}
+	
+	/**
+	 * Copies of the best individuals in the population, which can be sent to another population.
+	 * When we are evolving in place, the copies live in a new block of the arena, so that they
+	 * are not affected by later generations.
+	 * @param m	How many individuals to copy.
+	 */
+	IndividualWithFitness[] emigrants(final int m) {
+		final int k = Math.min(m, params.population_size);
+		final IndividualWithFitness[] emigrants = new IndividualWithFitness[k];
+		final Individual[] copies = (arena == null) ? null : arena.allocate(k);
+		
+		population.rank(k);
+		for(int i = 0; i < k; i++) {
+			final int slot = population.order[i];
+			Individual individual = population.individuals[slot];
+			
+			if(copies != null) {
+				individual.copy_into(copies[i]);
+				individual = copies[i];
+			}
+			emigrants[i] = new IndividualWithFitness(individual, population.fitness[slot]);
+		}
+		population.rank(elite_size);
+		
+		return emigrants;
+	}
+	
+	/**
+	 * Replaces the worst individuals of the population with individuals coming from another population.
+	 */
+	void immigrate(final IndividualWithFitness[] immigrants) {
+		final int size = params.population_size;
+		final int m = Math.min(immigrants.length, size - elite_size);
+		
+		for(int k = 0; k < m; k++) {
+			// Move the worst non-elite individual, among the ones not replaced yet, to order[size - 1 - k]
+			int worst = elite_size;
+			for(int i = elite_size + 1; i < size - k; i++) {
+				if(population.fitness[population.order[i]] > population.fitness[population.order[worst]]) { worst = i; }
+			}
+			population.swap(worst, size - 1 - k);
+			
+			final int slot = population.order[size - 1 - k];
+			if(arena != null) {
+				immigrants[k].individual.copy_into(population.individuals[slot]);
+				population.set(slot, population.individuals[slot], immigrants[k].fitness);
+			} else {
+				population.set(slot, immigrants[k].individual, immigrants[k].fitness);
+			}
+		}
+		
+		population.rank(elite_size);
+	}
+	
+	/**
+	 * Puts the population saved in ``checkpoint'' back in place.
+	 */
+	void restore(final Checkpoint checkpoint) {
+		try {
+			checkpoint.restore(this);
+		} catch(IOException | UnsupportedOperationException | ClassCastException e) {
+			System.err.println("Cannot resume from the checkpoint: " + e.getMessage());
+			System.exit(1);
+		}
 	}
 	
 	/**
-	 * Initialises the population with population_size new random individuals.
+	 * Initialises the population with population_size new random individuals, or with the
+	 * best population_size out of initial_population_factor times as many. This is never
+	 * abandoned, so that there always is a best individual (but improving them can be cut short).
 	 */
 	void initialise_population() {
-		IntStream.rangeClosed(1, params.population_size).forEach(i -> population.add(new IndividualWithFitness(generator, evaluator)));
+		generation = 0;
+		if(metrics != null) { metrics.start_generation(); }
+		long time = clock();
+		
+		generate_candidates(population, 0, params.population_size, 0);
+		
+		// Generate the extra candidates in the offspring buffer, one batch at a time, and swap the good ones in
+		final int candidates = (int) Math.ceil(params.population_size * params.initial_population_factor);
+		for(int first = params.population_size; first < candidates; first += params.population_size) {
+			final int batch = Math.min(params.population_size, candidates - first);
+			generate_candidates(offspring, 0, batch, first);
+			keep_best(offspring, batch);
+		}
+		time = lap(Phase.MUTANTS, time);
+		
+		improve_best(population, 0);
+		time = lap(Phase.IMPROVEMENT, time);
+		
+		population.rank(elite_size);
+		lap(Phase.RANKING, time);
+		
+		if(metrics != null) { metrics.end_generation(0, population.best_fitness()); }
+	}
+	
+	/**
+	 * Generates and evaluates ``count'' random candidates, in slots first_slot, ...,
+	 * first_slot + count - 1 of ``gen'', in parallel. Candidates are numbered from
+	 * ``first'', and each one draws its random numbers from the stream of its number.
+	 */
+	void generate_candidates(final Population gen, final int first_slot, final int count, final int first) {
+		pool.run_chunked(count, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				gen.individuals[first_slot + i] = new_mutant(gen, first_slot + i, stream_for(first + i));
+			}
+			final long time = clock();
+			evaluator.fitness_of_batch(gen.individuals, first_slot + from, first_slot + to, gen.fitness);
+			evaluated(to - from, time);
+		}, "Fatal error while generating random individuals.");
+	}
+	
+	/**
+	 * Measures the diversity of the elite, as the mean distance between diversity_samples
+	 * random pairs of elite individuals. If individuals do not support distances, two
+	 * individuals are at distance 1 if their fitness differs, and 0 otherwise.
+	 */
+	double measure_diversity() {
+		final int k = Math.max(2, Math.min(elite_size, params.population_size));
+		final RandomStream prng = streams.get().reset(seed, generation, 2L * params.population_size);
+		double total = 0;
+		
+		for(int sample = 0; sample < params.diversity_samples; sample++) {
+			final int a = population.order[prng.next_int(k)];
+			int b = population.order[prng.next_int(k - 1)];
+			if(b == a) { b = population.order[k - 1]; }
+			
+			total += distance(a, b);
+		}
+		
+		diversity = total / Math.max(1, params.diversity_samples);
+		return diversity;
+	}
+	
+	double distance(final int a, final int b) {
+		if(distance_supported == null || distance_supported) {
+			try {
+				final double d = population.individuals[a].distance(population.individuals[b]);
+				distance_supported = true;
+				return d;
+			} catch(UnsupportedOperationException e) {
+				distance_supported = false;
+			}
+		}
+		return (population.fitness[a] != population.fitness[b]) ? 1 : 0;
+	}
+	
+	/**
+	 * Keeps the best restart_survivors_share of the population (at least the best
+	 * individual), and replaces all the others with new mutants. The new individuals
+	 * use the streams of slots population_size, ..., 2*population_size-1 of the current
+	 * generation, which are otherwise unused.
+	 */
+	void restart() {
+		final int survivors = Math.max(1, Math.min(params.population_size, (int) (params.population_size * params.restart_survivors_share)));
+		
+		// Move the survivors to the first slots (swapping, so that this also works in place)
+		population.rank(survivors);
+		final Individual[] individuals = population.individuals.clone();
+		final double[] fitness = population.fitness.clone();
+		for(int i = 0; i < params.population_size; i++) {
+			population.set(i, individuals[population.order[i]], fitness[population.order[i]]);
+		}
+		
+		generate_candidates(population, survivors, params.population_size - survivors, params.population_size + survivors);
+		improve_best(population, survivors);
+		population.rank(elite_size);
+	}
+	
+	/**
+	 * Swaps the best of the first ``count'' individuals of ``candidates'' with the worst
+	 * individuals of the population, so that the population ends up with the best ones
+	 * among both. Individuals are swapped, not copied, so this also works in place.
+	 */
+	void keep_best(final Population candidates, final int count) {
+		population.sort(params.population_size);
+		candidates.sort(count);
+		
+		for(int i = 0; i < count; i++) {
+			final int slot = population.order[params.population_size - 1 - i];
+			final int candidate = candidates.order[i];
+			if(candidates.fitness[candidate] >= population.fitness[slot]) { break; }
+			
+			final Individual individual = population.individuals[slot];
+			final double fitness = population.fitness[slot];
+			population.set(slot, candidates.individuals[candidate], candidates.fitness[candidate]);
+			candidates.set(candidate, individual, fitness);
+		}
 	}
 	
 	/**
@@ -129,103 +516,182 @@ public class Solver {
 	 * - The elite individuals in the current population;
 	 * - The new ``mutant'' individuals;
 	 * - The individuals generated by crossover.
+	 * Each group goes into its own range of slots, so that workers never need to synchronise.
 	 * @return The new generation's population
 	 */
-	SortedSet<IndividualWithFitness> evolve_new_generation() {
-		final SortedSet<IndividualWithFitness> new_gen = new TreeSet<IndividualWithFitness>();
-		
-		// Keep track of the first non-elite individual
-		IndividualWithFitness first_non_elite = null;
+	Population evolve_new_generation() {
+		final Population new_gen = offspring;
+		long time = clock();
 		
 		// Insert elite
-		int elite_inserted = 0;
-		for(final IndividualWithFitness individual : population) {
-			// If this is true, we are considering the first non-elite individual
-			if(elite_inserted == elite_size) { first_non_elite = individual; break; }
-			
-			new_gen.add(individual.clone());
-			elite_inserted++;
+		for(int i = 0; i < elite_size; i++) {
+			final int slot = population.order[i];
+			if(arena != null) {
+				population.individuals[slot].copy_into(new_gen.individuals[i]);
+				new_gen.set(i, new_gen.individuals[i], population.fitness[slot]);
+			} else {
+				new_gen.set(i, population.individuals[slot], population.fitness[slot]);
+			}
 		}
-				
-		assert(first_non_elite != null);
+		time = lap(Phase.ELITE, time);
 		
 		// Insert new mutants in parallel
-		insert_mutants(new_gen);
+		insert_mutants(new_gen, elite_size);
+		time = lap(Phase.MUTANTS, time);
+		if(abandoned) { return new_gen; }
 		
 		// Fill the population with individuals generated by cross-over
-		do_xover(new_gen, first_non_elite);
-
+		do_xover(new_gen, elite_size + new_individuals_size);
+		time = lap(Phase.CROSSOVER, time);
+		if(abandoned) { return new_gen; }
+		
+		// Let the evaluator improve the best new individuals, then find out who is elite in the new generation
+		improve_best(new_gen, elite_size);
+		time = lap(Phase.IMPROVEMENT, time);
+		new_gen.rank(elite_size);
+		lap(Phase.RANKING, time);
+		
 		return new_gen;
 	}
 	
 	/**
-	 * Inserts the new mutant individuals in the new generation's population.
-	 * @param new_gen The (new) population into which to insert the new mutants
+	 * Lets the evaluator improve the best elite_size individuals in slots first_slot, ...,
+	 * population_size-1 (i.e. the new ones, which can make it into the elite), if it wants
+	 * to. The population must be ranked afterwards. Since each improvement keeps the
+	 * fitness of the individual up to date, the workers can stop at any time.
 	 */
-	void insert_mutants(final SortedSet<IndividualWithFitness> new_gen) {
-		final Object lock = new Object();
+	void improve_best(final Population gen, final int first_slot) {
+		if(!evaluator.improves_elite()) { return; }
 		
-		// Insert new mutants in parallel
-		final ExecutorService es = Executors.newFixedThreadPool(N_THREADS);
-		final List<Callable<Object>> callmutants = new ArrayList<Callable<Object>>();
-		for(int i = 0; i < new_individuals_size; i++) {
-			callmutants.add(Executors.callable(
-					new Runnable() {
-						@Override public void run() {
-							final IndividualWithFitness ind = new IndividualWithFitness(generator, evaluator);
-							synchronized(lock) { new_gen.add(ind); }
-						}
-					}
-			));
-		}
+		gen.rank_from(first_slot, elite_size);
+		final int k = Math.min(elite_size, params.population_size - first_slot);
 		
-		try { es.invokeAll(callmutants); } catch (InterruptedException e) { System.err.println("Fatal error while generating mutants."); System.exit(1); }
-		es.shutdown();
+		pool.run_chunked(k, (from, to) -> {
+			for(int i = first_slot + from; i < first_slot + to; i++) {
+				if(abandon()) { return; }
+				
+				final int slot = gen.order[i];
+				gen.fitness[slot] = evaluator.improve(gen.individuals[slot], gen.fitness[slot]);
+			}
+		}, "Fatal error while improving the best new individuals.");
+	}
+	
+	/**
+	 * Inserts the new mutant individuals in the new generation's population.
+	 * @param new_gen 		The (new) population into which to insert the new mutants
+	 * @param first_slot	The first slot reserved for mutants
+	 */
+	void insert_mutants(final Population new_gen, final int first_slot) {
+		pool.run_chunked(new_individuals_size, (from, to) -> {
+			for(int slot = first_slot + from; slot < first_slot + to; slot++) {
+				if(abandon()) { return; }
+				new_gen.individuals[slot] = new_mutant(new_gen, slot);
+			}
+			final long time = clock();
+			evaluator.fitness_of_batch(new_gen.individuals, first_slot + from, first_slot + to, new_gen.fitness);
+			evaluated(to - from, time);
+		}, "Fatal error while generating mutants.");
 	}
 	
 	/**
 	 * Completes the new generation's population by doing cross-over between one elite and one non-elite parent.
-	 * @param new_gen 			The (new) population to complete
-	 * @param first_non_elite	The first non-elite individual in the current (old) population
-	 */
-	void do_xover(final SortedSet<IndividualWithFitness> new_gen, final IndividualWithFitness first_non_elite) {
-		final Object lock = new Object();
-		
-		// Get a list of elite individuals
-		final List<Individual> elite = population
-				.headSet(first_non_elite)		// Get the IndividualWithFitness objects better than first_non_elite
-				.stream()						// Make a stream out of them
-				.map(i -> i.individual)			// Get the Individual out of IndividualWithFitness
-				.collect(Collectors.toList());  // Collect the individuals
-		
-		// Get a list of non-elite individuals
-		final List<Individual> normal = population
-				.tailSet(first_non_elite)		// Get the IndividualWithFitness objects worse or equal than first_non_elite
-				.stream()						// Make a stream out of them
-				.map(i -> i.individual)			// Get the Individual out of IndividualWithFitness
-				.collect(Collectors.toList());	// Collect the individuals
+	 * @param new_gen 		The (new) population to complete
+	 * @param first_slot	The first slot reserved for individuals generated by cross-over
+	 */
+	void do_xover(final Population new_gen, final int first_slot) {
+		final Population old_gen = population;
+		final int normal_size = params.population_size - elite_size;
 		
 		// Keep crossing over until we reach the desired population size, in parallel
-		final ExecutorService es = Executors.newFixedThreadPool(N_THREADS);
-		final List<Callable<Object>> callxover = new ArrayList<Callable<Object>>();
-		final int n_crossover_individuals = params.population_size - new_gen.size();
-		for(int i = 0; i < n_crossover_individuals; i++) {
-			callxover.add(Executors.callable(
-					new Runnable() {
-						@Override public void run() {
-							final int elite_id = ThreadLocalRandom.current().nextInt(elite.size());
-							final int normal_id = ThreadLocalRandom.current().nextInt(normal.size());
-							
-							// Generate the child from biased crossover between elite and non-elite parents
-							final Individual child = elite.get(elite_id).crossover(normal.get(normal_id), params.bias);
-							final IndividualWithFitness ind = new IndividualWithFitness(child, evaluator);
-							synchronized(lock) { new_gen.add(ind); }
-						}
-					}
-			));
-		}
+		pool.run_chunked(params.population_size - first_slot, (from, to) -> {
+			for(int slot = first_slot + from; slot < first_slot + to; slot++) {
+				if(abandon()) { return; }
+				
+				final RandomStream prng = stream_for(slot);
+				
+				// Elite individuals are in the first elite_size positions of ``order'', the others afterwards
+				final int elite_id = old_gen.order[prng.next_int(elite_size)];
+				final int normal_id = old_gen.order[elite_size + prng.next_int(normal_size)];
+				
+				// Generate the child from biased crossover between elite and non-elite parents
+				new_gen.individuals[slot] = new_child(old_gen.individuals[elite_id], old_gen.individuals[normal_id], new_gen, slot, prng);
+				elite_parents[slot] = old_gen.individuals[elite_id];
+			}
+			final long time = clock();
+			evaluator.fitness_of_children(new_gen.individuals, elite_parents, first_slot + from, first_slot + to, new_gen.fitness);
+			evaluated(to - from, time);
+		}, "Fatal error while doing cross-over.");
+	}
+	
+	/**
+	 * Generates a new random individual for a slot of ``gen'', either in place or by allocating it.
+	 */
+	Individual new_mutant(final Population gen, final int slot) {
+		return new_mutant(gen, slot, stream_for(slot));
+	}
+	
+	/**
+	 * Generates a new random individual for a slot of ``gen'', drawing from ``prng''.
+	 */
+	Individual new_mutant(final Population gen, final int slot, final RandomStream prng) {
+		if(arena == null) { return generator.generate(prng); }
 		
-		try { es.invokeAll(callxover); } catch (InterruptedException e) { System.err.println("Fatal error while doing cross-over."); System.exit(1); }
-		es.shutdown();
+		generator.generate_into(gen.individuals[slot], prng);
+		return gen.individuals[slot];
+	}
+	
+	/**
+	 * Crosses the elite and non-elite parents over, to produce a child for a slot of ``gen'',
+	 * either in place or by allocating it.
+	 */
+	Individual new_child(final Individual elite, final Individual normal, final Population gen, final int slot, final RandomStream prng) {
+		if(arena == null) { return elite.crossover(normal, params.bias, prng); }
+		
+		elite.crossover_into(normal, params.bias, gen.individuals[slot], prng);
+		return gen.individuals[slot];
+	}
+	
+	/**
+	 * Called by the workers between individuals: whether they should abandon the
+	 * generation in flight, since the time is up or the run was cancelled.
+	 */
+	boolean abandon() {
+		if(termination == null || !termination.expired()) { return false; }
+		
+		abandoned = true;
+		return true;
+	}
+	
+	/**
+	 * The calling thread's random stream, reset for the given slot of the current generation.
+	 */
+	RandomStream stream_for(final int slot) {
+		return streams.get().reset(seed, generation, slot);
+	}
+	
+	/**
+	 * Current time, if we are collecting metrics (0 otherwise, so we do not even read the clock).
+	 */
+	long clock() {
+		return (metrics == null) ? 0 : System.nanoTime();
+	}
+	
+	/**
+	 * Records that a phase started at time ``since'' (see clock) is over.
+	 * @return	The current time, i.e. when the next phase starts.
+	 */
+	long lap(final Phase phase, final long since) {
+		if(metrics == null) { return 0; }
+		
+		final long now = System.nanoTime();
+		metrics.record(phase, now - since);
+		return now;
+	}
+	
+	/**
+	 * Records that ``count'' individuals were evaluated, starting at time ``since'' (see clock).
+	 */
+	void evaluated(final int count, final long since) {
+		if(metrics != null) { metrics.record_evaluations(count, System.nanoTime() - since); }
 	}
 }
\ No newline at end of file
@@ -0,0 +1,306 @@
+package org.alberto.biasedga;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Where the time (and memory) of each generation goes. The solver collects them only
+ * when asked to (see ParametersBuilder.with_metrics), and passes them to its visitor
+ * (see SolverVisitor.at_metrics); they are also published via JMX while the solver
+ * runs, and as one Flight Recorder GenerationEvent per generation.
+ *
+ * The phases of a generation are timed by the solver thread, with the wall clock:
+ * copying the elite, generating the mutants, generating the children by crossover,
+ * improving the best new individuals, and ranking the population. Evaluation happens
+ * inside the mutants and crossover phases, on the worker threads: its time is summed
+ * over all of them. The worker pool also records how long each chunk of work waits
+ * before a thread picks it up, how long it runs, and how much memory it allocates.
+ *
+ * Worker threads only update LongAdders, so they never contend on a lock.
+ * @author alberto
+ *
+ */
+public class SolverMetrics implements SolverMetricsMXBean {
+	public enum Phase { ELITE, MUTANTS, CROSSOVER, EVALUATION, IMPROVEMENT, RANKING }
+
+	/**
+	 * Phases whose work is spread over the worker pool.
+	 */
+	static final Phase[] PARALLEL_PHASES = { Phase.MUTANTS, Phase.CROSSOVER, Phase.IMPROVEMENT };
+
+	/**
+	 * Used to give each registered solver its own JMX name.
+	 */
+	static final AtomicInteger next_id = new AtomicInteger();
+
+	/**
+	 * Per-thread allocation counters of the JVM, if it has them (null otherwise).
+	 */
+	static final com.sun.management.ThreadMXBean threads = allocation_counters();
+
+	/**
+	 * Number of threads of the worker pool.
+	 */
+	final int n_threads;
+
+	/**
+	 * Time spent in each phase, per generation.
+	 */
+	final LatencyHistogram[] phases;
+
+	/**
+	 * Time spent in each phase in the last generation. Only touched by the solver thread.
+	 */
+	final long[] last;
+
+	/**
+	 * Time that chunks of work wait before a worker picks them up.
+	 */
+	final LatencyHistogram queue_wait = new LatencyHistogram();
+
+	/**
+	 * Time spent by the workers running chunks of work.
+	 */
+	final LongAdder busy_nanos = new LongAdder();
+
+	/**
+	 * Evaluation time and number of evaluations in the current generation.
+	 */
+	final LongAdder generation_evaluation_nanos = new LongAdder();
+	final LongAdder generation_evaluations = new LongAdder();
+
+	/**
+	 * Memory allocated by the workers in the current generation (bytes).
+	 */
+	final LongAdder generation_allocated = new LongAdder();
+
+	/**
+	 * Totals since the start of the run.
+	 */
+	final LongAdder evaluations = new LongAdder();
+	final LongAdder allocated = new LongAdder();
+
+	/**
+	 * Number of generations completed.
+	 */
+	volatile int generations = 0;
+
+	/**
+	 * When the run started (System.nanoTime).
+	 */
+	final long start_time = System.nanoTime();
+
+	/**
+	 * Memory allocated by the solver thread when the current generation started.
+	 */
+	long solver_allocated_at_start;
+
+	/**
+	 * Flight Recorder event of the current generation.
+	 */
+	GenerationEvent event;
+
+	/**
+	 * Name under which we are registered via JMX (null if we are not).
+	 */
+	ObjectName jmx_name = null;
+
+	SolverMetrics(final int n_threads) {
+		this.n_threads = n_threads;
+		this.phases = new LatencyHistogram[Phase.values().length];
+		this.last = new long[Phase.values().length];
+
+		for(int p = 0; p < phases.length; p++) { phases[p] = new LatencyHistogram(); }
+	}
+
+	/**
+	 * Called by the solver thread when a generation starts.
+	 */
+	void start_generation() {
+		Arrays.fill(last, 0);
+		solver_allocated_at_start = thread_allocated_bytes();
+		event = new GenerationEvent();
+		event.begin();
+	}
+
+	/**
+	 * Called by the solver thread at the end of each phase (but EVALUATION, see record_evaluations).
+	 */
+	void record(final Phase phase, final long nanos) {
+		last[phase.ordinal()] = nanos;
+	}
+
+	/**
+	 * Called by the workers each time they evaluate a block of ``count'' individuals.
+	 */
+	void record_evaluations(final int count, final long nanos) {
+		generation_evaluations.add(count);
+		generation_evaluation_nanos.add(nanos);
+	}
+
+	/**
+	 * Called by the worker pool for each chunk of work.
+	 * @param wait		How long the chunk waited before a worker picked it up.
+	 * @param busy		How long it took to run it.
+	 * @param bytes		How much memory the worker allocated while running it.
+	 */
+	void record_task(final long wait, final long busy, final long bytes) {
+		queue_wait.record(wait);
+		busy_nanos.add(busy);
+		generation_allocated.add(bytes);
+	}
+
+	/**
+	 * Called by the solver thread when a generation ends.
+	 */
+	void end_generation(final int generation, final double best_fitness) {
+		last[Phase.EVALUATION.ordinal()] = generation_evaluation_nanos.sumThenReset();
+		for(int p = 0; p < phases.length; p++) { phases[p].record(last[p]); }
+
+		final long generation_evaluated = generation_evaluations.sumThenReset();
+		final long generation_bytes = generation_allocated.sumThenReset() + (thread_allocated_bytes() - solver_allocated_at_start);
+		evaluations.add(generation_evaluated);
+		allocated.add(generation_bytes);
+		generations++;
+
+		event.end();
+		if(event.shouldCommit()) {
+			event.generation = generation;
+			event.best_fitness = best_fitness;
+			event.elite = last[Phase.ELITE.ordinal()];
+			event.mutants = last[Phase.MUTANTS.ordinal()];
+			event.crossover = last[Phase.CROSSOVER.ordinal()];
+			event.evaluation = last[Phase.EVALUATION.ordinal()];
+			event.improvement = last[Phase.IMPROVEMENT.ordinal()];
+			event.ranking = last[Phase.RANKING.ordinal()];
+			event.evaluations = generation_evaluated;
+			event.allocated = generation_bytes;
+			event.commit();
+		}
+		event = null;
+	}
+
+	/**
+	 * Time spent in a phase during the last generation (only valid in the solver thread, e.g. in the visitor).
+	 */
+	public long last_nanos(final Phase phase) {
+		return last[phase.ordinal()];
+	}
+
+	/**
+	 * Mean time per generation spent in a phase.
+	 */
+	public double mean_nanos(final Phase phase) {
+		return phases[phase.ordinal()].mean();
+	}
+
+	/**
+	 * Upper bound of the q-quantile of the time per generation spent in a phase.
+	 */
+	public long quantile_nanos(final Phase phase, final double q) {
+		return phases[phase.ordinal()].quantile(q);
+	}
+
+	/**
+	 * Upper bound of the q-quantile of the time that chunks of work wait for a worker.
+	 */
+	public long queue_wait_quantile_nanos(final double q) {
+		return queue_wait.quantile(q);
+	}
+
+	public int generations() {
+		return generations;
+	}
+
+	public double evaluations_per_second() {
+		return evaluations.sum() / seconds_since_start();
+	}
+
+	/**
+	 * Estimated allocation rate of the solver and its workers, in bytes per second (0 if
+	 * the JVM cannot measure it).
+	 */
+	public double allocated_bytes_per_second() {
+		return allocated.sum() / seconds_since_start();
+	}
+
+	/**
+	 * Fraction of the time of the parallel phases during which the workers were actually
+	 * running chunks of work: the rest is waiting, scheduling and load imbalance.
+	 */
+	public double pool_utilisation() {
+		double parallel_nanos = 0;
+		for(final Phase phase : PARALLEL_PHASES) { parallel_nanos += phases[phase.ordinal()].total.sum(); }
+
+		return (parallel_nanos == 0) ? 0 : busy_nanos.sum() / (parallel_nanos * n_threads);
+	}
+
+	double seconds_since_start() {
+		return Math.max(1e-9, (System.nanoTime() - start_time) / 1e9);
+	}
+
+	@Override public int getGenerations() { return generations(); }
+	@Override public double getEvaluationsPerSecond() { return evaluations_per_second(); }
+	@Override public double getAllocatedBytesPerSecond() { return allocated_bytes_per_second(); }
+	@Override public double getPoolUtilisation() { return pool_utilisation(); }
+	@Override public double getQueueWaitP99Micros() { return queue_wait_quantile_nanos(0.99) / 1e3; }
+
+	@Override
+	public Map<String, Double> getPhaseMeanMicros() {
+		final Map<String, Double> means = new LinkedHashMap<String, Double>();
+		for(final Phase phase : Phase.values()) { means.put(phase.name(), mean_nanos(phase) / 1e3); }
+		return means;
+	}
+
+	@Override
+	public Map<String, Double> getPhaseP99Micros() {
+		final Map<String, Double> quantiles = new LinkedHashMap<String, Double>();
+		for(final Phase phase : Phase.values()) { quantiles.put(phase.name(), quantile_nanos(phase, 0.99) / 1e3); }
+		return quantiles;
+	}
+
+	/**
+	 * Publishes the metrics via JMX. Failing to do so is not a reason to stop the solver.
+	 */
+	void register() {
+		try {
+			jmx_name = new ObjectName("org.alberto.biasedga:type=SolverMetrics,name=solver-" + next_id.getAndIncrement());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, jmx_name);
+		} catch(JMException e) {
+			System.err.println("Cannot publish the solver metrics via JMX: " + e.getMessage());
+			jmx_name = null;
+		}
+	}
+
+	void unregister() {
+		if(jmx_name == null) { return; }
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmx_name);
+		} catch(JMException e) {
+			System.err.println("Cannot withdraw the solver metrics from JMX: " + e.getMessage());
+		}
+		jmx_name = null;
+	}
+
+	/**
+	 * Bytes allocated so far by the current thread (0 if the JVM cannot tell).
+	 */
+	static long thread_allocated_bytes() {
+		return (threads == null) ? 0 : threads.getCurrentThreadAllocatedBytes();
+	}
+
+	static com.sun.management.ThreadMXBean allocation_counters() {
+		if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) { return null; }
+
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) ? bean : null;
+	}
+}
@@ -0,0 +1,31 @@
+package org.alberto.biasedga;
+
+import java.util.Map;
+
+/**
+ * What SolverMetrics exposes via JMX, under ``org.alberto.biasedga:type=SolverMetrics''.
+ * JMX wants Java-bean style getters, hence the naming.
+ * @author alberto
+ *
+ */
+public interface SolverMetricsMXBean {
+	int getGenerations();
+	
+	double getEvaluationsPerSecond();
+	
+	double getAllocatedBytesPerSecond();
+	
+	double getPoolUtilisation();
+	
+	double getQueueWaitP99Micros();
+	
+	/**
+	 * Mean time per generation spent in each phase.
+	 */
+	Map<String, Double> getPhaseMeanMicros();
+	
+	/**
+	 * 99th percentile of the time per generation spent in each phase.
+	 */
+	Map<String, Double> getPhaseP99Micros();
+}
@@ -31,4 +31,17 @@ public abstract class SolverVisitor {
 	 * This observer action is called by the solver when the solution process is over.
 	 */
 	public abstract void at_end(final Solver solver, final int iteration, final double elapsed_time_s);
+	
+	/**
+	 * This observer action is called by the solver right after ``at_fixed_number_of_iterations'',
+	 * if it collects metrics (see ParametersBuilder.with_metrics). By default, it does nothing.
+	 */
+	public void at_metrics(final Solver solver, final int iteration, final SolverMetrics metrics) {}
+	
+	/**
+	 * This observer action is called by the solver right after it restarted the population,
+	 * because the diversity of the elite (as measured before the restart) was too low
+	 * (see ParametersBuilder.with_diversity_threshold). By default, it does nothing.
+	 */
+	public void at_restart(final Solver solver, final int iteration, final double diversity) {}
 }
@@ -0,0 +1,47 @@
+package org.alberto.biasedga;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * File formats in which DefaultSolverVisitor can save its stats.
+ * @author alberto
+ *
+ */
+public enum StatsFormat {
+	/**
+	 * One ``iteration,time,value'' line per record, after a header line.
+	 */
+	CSV,
+	
+	/**
+	 * The magic number BINARY_MAGIC, then one record after the other, each made of
+	 * the iteration (int), the elapsed time in seconds (double) and the best fitness
+	 * (double), in big-endian order: 20 bytes per record.
+	 */
+	BINARY;
+	
+	/**
+	 * First bytes of a binary stats file: "BRKS".
+	 */
+	public static final int BINARY_MAGIC = 0x42524B53;
+	
+	void write_header(final DataOutputStream out) throws IOException {
+		if(this == CSV) { out.writeBytes("iteration,time,value\n"); } else { out.writeInt(BINARY_MAGIC); }
+	}
+	
+	/**
+	 * Writes a record. ``line'' is scratch memory for CSV lines.
+	 */
+	void write_record(final DataOutputStream out, final StringBuilder line, final int iteration, final double time, final double value) throws IOException {
+		if(this == CSV) {
+			line.setLength(0);
+			line.append(iteration).append(',').append(time).append(',').append(value).append('\n');
+			out.writeBytes(line.toString());
+		} else {
+			out.writeInt(iteration);
+			out.writeDouble(time);
+			out.writeDouble(value);
+		}
+	}
+}
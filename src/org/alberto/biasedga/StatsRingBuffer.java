@@ -0,0 +1,99 @@
+package org.alberto.biasedga;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free queue of stats records, with one producer (the solver thread)
+ * and one consumer (the thread which writes them to file). Records are kept in
+ * primitive arrays, so enqueuing one neither allocates nor blocks: when the queue
+ * is full, the record is dropped and counted.
+ * @author alberto
+ *
+ */
+class StatsRingBuffer {
+	/**
+	 * Number of records the queue can hold (a power of two).
+	 */
+	final int capacity;
+	
+	/**
+	 * capacity - 1, to turn sequence numbers into positions.
+	 */
+	final int mask;
+	
+	/**
+	 * The records' fields.
+	 */
+	final int[] iterations;
+	final double[] times;
+	final double[] values;
+	
+	/**
+	 * Number of records ever enqueued. Only the producer writes it.
+	 */
+	final AtomicLong published = new AtomicLong();
+	
+	/**
+	 * Number of records ever dequeued. Only the consumer writes it.
+	 */
+	final AtomicLong consumed = new AtomicLong();
+	
+	/**
+	 * Number of records dropped because the queue was full. Only the producer writes it.
+	 */
+	volatile long dropped = 0;
+	
+	StatsRingBuffer(final int min_capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(2, min_capacity - 1) << 1);
+		this.mask = capacity - 1;
+		this.iterations = new int[capacity];
+		this.times = new double[capacity];
+		this.values = new double[capacity];
+	}
+	
+	/**
+	 * Enqueues a record, unless the queue is full.
+	 * @return Whether the record was enqueued.
+	 */
+	boolean offer(final int iteration, final double time, final double value) {
+		final long tail = published.get();
+		if(tail - consumed.get() >= capacity) {
+			dropped++;
+			return false;
+		}
+		
+		final int p = (int) (tail & mask);
+		iterations[p] = iteration;
+		times[p] = time;
+		values[p] = value;
+		
+		// Ordered write: the consumer sees the fields before it sees the new tail
+		published.lazySet(tail + 1);
+		return true;
+	}
+	
+	/**
+	 * Sequence number of the oldest record in the queue.
+	 */
+	long head() {
+		return consumed.get();
+	}
+	
+	/**
+	 * Sequence number after the newest record in the queue.
+	 */
+	long tail() {
+		return published.get();
+	}
+	
+	int position(final long sequence) {
+		return (int) (sequence & mask);
+	}
+	
+	/**
+	 * Releases the records before ``sequence'', once the consumer has read them.
+	 */
+	void release(final long sequence) {
+		consumed.lazySet(sequence);
+	}
+}
@@ -0,0 +1,325 @@
+package org.alberto.biasedga;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Steady-state, asynchronous variant of the Biased Genetic Algorithm: there are no
+ * generations to wait for. Each worker thread keeps picking an elite and a non-elite
+ * parent, producing and evaluating a child (or, at rate new_individuals_share, a new
+ * mutant), and putting it in the place of a random non-elite individual. So a slow
+ * evaluation only delays the thread doing it, and all the threads stay busy.
+ *
+ * The slots of the population hold immutable (individual, fitness) pairs, which are
+ * replaced by compare-and-set, so no thread ever takes a lock to read or replace them.
+ * Which slots are elite is decided every population_size - elite_size new individuals
+ * (an ``epoch'', which counts as one generation for the termination criteria and the
+ * visitor) by the thread which completes the epoch. Until the next ranking, elite slots
+ * are never replaced, and neither are individuals which became good enough to be elite
+ * in the meantime (unless by better ones), so the best individual is never lost. A
+ * worker which replaces an individual just as a new ranking makes its slot elite puts
+ * it back. There is one worker per thread of the pool, whatever the chunk size.
+ *
+ * Individuals are never overwritten in place, so the solver does not support arenas.
+ * Runs are not reproducible, since the order in which threads replace individuals is
+ * not; metrics only cover the initial population, and checkpoints are not saved.
+ * @author alberto
+ *
+ */
+public class SteadyStateSolver extends Solver {
+	/**
+	 * First key of the random streams of the individuals produced by the workers (the
+	 * second one is the number of the individual), distinct from those of the generations.
+	 */
+	static final long STEADY_STATE_STREAMS = -2;
+
+	/**
+	 * Which slots are elite, decided at the end of each epoch. Immutable once published.
+	 */
+	static class Ranking {
+		/**
+		 * Slots of the elite individuals.
+		 */
+		final int[] elite;
+
+		/**
+		 * Slots of the other individuals, which children can replace.
+		 */
+		final int[] normal;
+
+		/**
+		 * Whether each slot is elite.
+		 */
+		final boolean[] is_elite;
+
+		/**
+		 * Fitness of the worst elite individual: non-elite individuals which are better are
+		 * only replaced by better children.
+		 */
+		final double threshold;
+
+		Ranking(final int[] elite, final int[] normal, final boolean[] is_elite, final double threshold) {
+			this.elite = elite;
+			this.normal = normal;
+			this.is_elite = is_elite;
+			this.threshold = threshold;
+		}
+	}
+
+	/**
+	 * Scratch memory of each worker, to evaluate one individual at a time.
+	 */
+	static class Scratch {
+		final Individual[] individuals = new Individual[1];
+		final Individual[] parents = new Individual[1];
+		final double[] fitness = new double[1];
+	}
+
+	/**
+	 * The individuals, with their fitness, one per slot.
+	 */
+	AtomicReferenceArray<IndividualWithFitness> slots;
+
+	/**
+	 * Latest ranking of the slots.
+	 */
+	volatile Ranking ranking;
+
+	/**
+	 * Contents of the slots when they were last ranked (only touched under the lock of the solver).
+	 */
+	IndividualWithFitness[] ranked;
+
+	/**
+	 * Best individual found so far.
+	 */
+	final AtomicReference<IndividualWithFitness> best = new AtomicReference<IndividualWithFitness>();
+
+	/**
+	 * Number of individuals produced by the workers so far.
+	 */
+	final AtomicLong produced = new AtomicLong();
+
+	/**
+	 * Number of new individuals per epoch.
+	 */
+	final int epoch_size;
+
+	/**
+	 * Probability that a worker produces a mutant rather than a child.
+	 */
+	final double mutant_rate;
+
+	/**
+	 * Number of epochs completed, and consecutive epochs without improvement (only
+	 * touched by the thread completing an epoch, under the lock of the solver).
+	 */
+	int epochs = 0;
+	int epochs_no_improvement = 0;
+
+	/**
+	 * Best fitness at the end of the last epoch.
+	 */
+	double last_epoch_best;
+
+	/**
+	 * When the run started (System.nanoTime).
+	 */
+	long start_time;
+
+	/**
+	 * Set when the search should stop.
+	 */
+	volatile boolean stop = false;
+
+	final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+	public SteadyStateSolver(final Parameters params, final IndividualGenerator generator, final IndividualEvaluator evaluator, final SolverVisitor visitor) {
+		super(params, generator, evaluator, visitor, null, new WorkerPool(params), true, params.random_seed);
+		this.epoch_size = Math.max(1, params.population_size - elite_size);
+		this.mutant_rate = (double) new_individuals_size / epoch_size;
+	}
+
+	@Override
+	public IndividualWithFitness solve() {
+		start_time = System.nanoTime();
+		termination = new Termination(params, start_time, cancellation);
+		produced.set(0);
+		epochs = 0;
+		epochs_no_improvement = 0;
+		if(metrics != null) { metrics.register(); }
+
+		initialise_population();
+		slots = new AtomicReferenceArray<IndividualWithFitness>(params.population_size);
+		for(int slot = 0; slot < params.population_size; slot++) {
+			slots.set(slot, new IndividualWithFitness(population.individuals[slot], population.fitness[slot]));
+		}
+		best.set(population.best());
+		last_epoch_best = best.get().fitness;
+		rank();
+
+		// Each worker runs until the search is over
+		final int workers = pool.parallelism();
+		stop = termination.should_stop(this, 0, 0);
+		pool.run_each(workers, (from, to) -> work(), "Fatal error while evolving the population.");
+
+		visitor.at_end(this, epochs, seconds_since(start_time));
+
+		pool.shutdown();
+		if(metrics != null) { metrics.unregister(); }
+		termination = null;
+
+		return best.get();
+	}
+
+	/**
+	 * Body of each worker: produces new individuals and puts them in the population until the search is over.
+	 */
+	void work() {
+		final Scratch scratch = scratches.get();
+		final RandomStream prng = streams.get();
+
+		while(!stop) {
+			if(termination.expired()) { stop = true; break; }
+
+			final long number = produced.getAndIncrement();
+			prng.reset(seed, STEADY_STATE_STREAMS, number);
+
+			final Ranking current = ranking;
+			final IndividualWithFitness offspring = (prng.next_double() < mutant_rate) ? produce_mutant(prng, scratch) : produce_child(current, prng, scratch);
+			insert(offspring, current, prng);
+
+			if((number + 1) % epoch_size == 0) { end_epoch(); }
+		}
+	}
+
+	/**
+	 * Generates a new random individual, and evaluates it.
+	 */
+	IndividualWithFitness produce_mutant(final RandomStream prng, final Scratch scratch) {
+		scratch.individuals[0] = generator.generate(prng);
+		evaluator.fitness_of_batch(scratch.individuals, 0, 1, scratch.fitness);
+		return improve(scratch.individuals[0], scratch.fitness[0]);
+	}
+
+	/**
+	 * Crosses a random elite individual with a random non-elite one, and evaluates the child.
+	 */
+	IndividualWithFitness produce_child(final Ranking current, final RandomStream prng, final Scratch scratch) {
+		final Individual elite = slots.get(current.elite[prng.next_int(current.elite.length)]).individual;
+		final Individual normal = slots.get(current.normal[prng.next_int(current.normal.length)]).individual;
+
+		scratch.individuals[0] = elite.crossover(normal, params.bias, prng);
+		scratch.parents[0] = elite;
+		evaluator.fitness_of_children(scratch.individuals, scratch.parents, 0, 1, scratch.fitness);
+		scratch.parents[0] = null;
+
+		return improve(scratch.individuals[0], scratch.fitness[0]);
+	}
+
+	/**
+	 * Lets the evaluator improve a new individual, if it wants to, and if it would be elite.
+	 */
+	IndividualWithFitness improve(final Individual individual, final double fitness) {
+		if(evaluator.improves_elite() && fitness < ranking.threshold) {
+			return new IndividualWithFitness(individual, evaluator.improve(individual, fitness));
+		}
+		return new IndividualWithFitness(individual, fitness);
+	}
+
+	/**
+	 * Puts a new individual in the place of a random non-elite one, unless the latter became
+	 * better than the worst elite since the last ranking, and is not worse than the new one.
+	 * The slot was picked with ``current'', but a newer ranking may have made it elite: we
+	 * check the latest ranking before replacing it, and put the old individual back if a
+	 * ranking made it elite while we were replacing it (rank() does the same from its side).
+	 */
+	void insert(final IndividualWithFitness offspring, final Ranking current, final RandomStream prng) {
+		final int slot = current.normal[prng.next_int(current.normal.length)];
+
+		while(true) {
+			final Ranking latest = ranking;
+			final IndividualWithFitness occupant = slots.get(slot);
+			if(latest.is_elite[slot]) { return; }
+			if(occupant.fitness < latest.threshold && occupant.fitness <= offspring.fitness) { return; }
+			if(!slots.compareAndSet(slot, occupant, offspring)) { continue; }
+
+			if(ranking != latest && ranking.is_elite[slot] && offspring.fitness > occupant.fitness) {
+				slots.compareAndSet(slot, offspring, occupant);
+				return;
+			}
+			break;
+		}
+
+		// Keep track of the best individual
+		IndividualWithFitness best_so_far = best.get();
+		while(offspring.fitness < best_so_far.fitness && !best.compareAndSet(best_so_far, offspring)) {
+			best_so_far = best.get();
+		}
+	}
+
+	/**
+	 * Called by the thread which produced the last individual of an epoch: ranks the
+	 * population again, checks whether the search is over, and informs the visitor.
+	 */
+	synchronized void end_epoch() {
+		if(stop) { return; }
+
+		rank();
+		epochs++;
+
+		final double best_fitness = best_fitness();
+		if(best_fitness < last_epoch_best - IMPROVEMENT_EPS) { epochs_no_improvement = 0; } else { epochs_no_improvement++; }
+		last_epoch_best = best_fitness;
+
+		final double elapsed_time_s = seconds_since(start_time);
+		if(epochs % visitor.observe_every_n_iterations == 0) {
+			visitor.at_fixed_number_of_iterations(this, epochs, elapsed_time_s);
+		}
+
+		if(termination.should_stop(this, epochs, epochs_no_improvement)) { stop = true; }
+	}
+
+	/**
+	 * Finds the elite slots, from a snapshot of the fitness of each slot, and publishes them.
+	 * Then puts back the elite individuals which workers replaced with worse ones in the
+	 * meantime, not having seen the new ranking yet.
+	 */
+	synchronized void rank() {
+		if(ranked == null) { ranked = new IndividualWithFitness[params.population_size]; }
+		for(int slot = 0; slot < params.population_size; slot++) {
+			ranked[slot] = slots.get(slot);
+			population.fitness[slot] = ranked[slot].fitness;
+		}
+		population.rank(elite_size);
+
+		final int k = Math.max(1, Math.min(elite_size, params.population_size - 1));
+		final int[] elite = new int[k];
+		final int[] normal = new int[params.population_size - k];
+		final boolean[] is_elite = new boolean[params.population_size];
+		double threshold = Double.NEGATIVE_INFINITY;
+
+		for(int i = 0; i < k; i++) {
+			elite[i] = population.order[i];
+			is_elite[elite[i]] = true;
+			threshold = Math.max(threshold, population.fitness[elite[i]]);
+		}
+		System.arraycopy(population.order, k, normal, 0, normal.length);
+
+		ranking = new Ranking(elite, normal, is_elite, threshold);
+
+		for(final int slot : elite) {
+			IndividualWithFitness occupant = slots.get(slot);
+			while(occupant.fitness > ranked[slot].fitness && !slots.compareAndSet(slot, occupant, ranked[slot])) {
+				occupant = slots.get(slot);
+			}
+		}
+	}
+
+	@Override
+	public double best_fitness() {
+		final IndividualWithFitness best_so_far = best.get();
+		return (best_so_far == null) ? population.best_fitness() : best_so_far.fitness;
+	}
+}
@@ -0,0 +1,71 @@
+package org.alberto.biasedga;
+
+/**
+ * Decides when a run of the solver is over. The solver thread checks all the
+ * termination conditions between generations (should_stop), while worker threads
+ * only check the cheap, time-critical ones (expired) between individuals, so that
+ * a generation in flight is abandoned as soon as the time is up or the run is cancelled.
+ * @author alberto
+ *
+ */
+class Termination {
+	/**
+	 * Solver parameters.
+	 */
+	final Parameters params;
+	
+	/**
+	 * When the run started (System.nanoTime, which is monotonic).
+	 */
+	final long start_time;
+	
+	/**
+	 * Time budget of the run.
+	 */
+	final long budget_nanos;
+	
+	/**
+	 * Token through which other threads can cancel the run.
+	 */
+	final CancellationToken cancellation;
+	
+	Termination(final Parameters params, final long start_time, final CancellationToken cancellation) {
+		this.params = params;
+		this.start_time = start_time;
+		this.budget_nanos = params.timeout_s * 1_000_000_000L;
+		this.cancellation = cancellation;
+	}
+	
+	/**
+	 * Whether the time is up or the run was cancelled. Cheap, and safe to call from any thread.
+	 */
+	boolean expired() {
+		return cancellation.is_cancelled() || System.nanoTime() - start_time >= budget_nanos;
+	}
+	
+	/**
+	 * Whether ``fitness'' is good enough to stop.
+	 */
+	boolean reached_target(final double fitness) {
+		return fitness <= params.target_fitness;
+	}
+	
+	/**
+	 * Whether the run is over, checking all the conditions.
+	 * @param generation					Number of generations evolved so far.
+	 * @param generations_no_improvement	Number of consecutive generations without improvement.
+	 */
+	boolean should_stop(final Solver solver, final int generation, final int generations_no_improvement) {
+		return expired() || generation >= params.max_generations || search_over(solver, generation, generations_no_improvement);
+	}
+	
+	/**
+	 * Whether the search is over, because it stagnated, reached the target, or met the
+	 * additional termination criterion (but not because of the time or the generations).
+	 */
+	boolean search_over(final Solver solver, final int generation, final int generations_no_improvement) {
+		return generations_no_improvement >= params.max_generations_no_improvement ||
+				reached_target(solver.best_fitness()) ||
+				(params.termination_criterion != null && params.termination_criterion.should_stop(solver, generation, Solver.seconds_since(start_time)));
+	}
+}
@@ -0,0 +1,17 @@
+package org.alberto.biasedga;
+
+/**
+ * Additional condition under which the solver stops, on top of the ones set in
+ * Parameters (number of generations, generations without improvement, timeout,
+ * target fitness, cancellation). See ParametersBuilder.with_termination_criterion.
+ * @author alberto
+ *
+ */
+public abstract class TerminationCriterion {
+	/**
+	 * Called by the solver thread before evolving each generation.
+	 * @param generation		Number of generations evolved so far.
+	 * @param elapsed_time_s	Time elapsed since the solver started.
+	 */
+	public abstract boolean should_stop(final Solver solver, final int generation, final double elapsed_time_s);
+}
@@ -0,0 +1,223 @@
+package org.alberto.biasedga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Long-lived execution backend of the solver. Work is described as a range of
+ * indices [0, n), which the pool splits in chunks and hands to its threads.
+ * The threads are started by the first run, and live until shutdown: a run after
+ * that starts new ones, so that a solver can solve more than once.
+ * @author alberto
+ *
+ */
+class WorkerPool {
+	/**
+	 * A piece of work that processes the indices in [from, to).
+	 */
+	interface ChunkTask {
+		void run(final int from, final int to);
+	}
+	
+	/**
+	 * Which kind of backend we are using.
+	 */
+	final ExecutionMode mode;
+	
+	/**
+	 * Number of threads (ignored in sequential mode).
+	 */
+	final int n_threads;
+	
+	/**
+	 * Number of indices per chunk, or 0 to pick it based on the amount of work and on n_threads.
+	 */
+	final int chunk_size;
+	
+	/**
+	 * Underlying executor (null in sequential mode, and until the first run or after shutdown).
+	 */
+	ExecutorService executor = null;
+	
+	/**
+	 * Where to record how long chunks wait and run, and how much they allocate (null not to record anything).
+	 */
+	SolverMetrics metrics = null;
+	
+	WorkerPool(final ExecutionMode mode, final int n_threads, final int chunk_size) {
+		this.mode = mode;
+		this.n_threads = Math.max(1, n_threads);
+		this.chunk_size = chunk_size;
+	}
+	
+	WorkerPool(final Parameters params) {
+		this(params.execution_mode, params.n_threads, params.chunk_size);
+	}
+	
+	/**
+	 * Runs ``task'' on all the indices in [0, n) and waits for it to complete.
+	 * @param n				Number of indices to process
+	 * @param task			The work to do on each chunk
+	 * @param error_message	What to print if the work cannot be completed
+	 */
+	void run_chunked(final int n, final ChunkTask work, final String error_message) {
+		run(n, chunk_size_for(n), work, error_message);
+	}
+	
+	/**
+	 * Runs ``task'' on each index in [0, n) as a chunk of its own, whatever the chunk size,
+	 * and waits for it to complete: e.g. to start one long-running worker per thread.
+	 */
+	void run_each(final int n, final ChunkTask work, final String error_message) {
+		run(n, 1, work, error_message);
+	}
+	
+	void run(final int n, final int chunk, final ChunkTask work, final String error_message) {
+		if(n <= 0) { return; }
+		
+		final ChunkTask task = (metrics == null) ? work : timed(work, System.nanoTime(), Thread.currentThread());
+		
+		// Not worth handing the work over to another thread
+		if(mode == ExecutionMode.SEQUENTIAL || chunk >= n) {
+			task.run(0, n);
+			return;
+		}
+		
+		try {
+			if(mode == ExecutionMode.FORK_JOIN) {
+				((ForkJoinPool) executor()).invoke(new RangeAction(task, 0, n, chunk));
+			} else {
+				final List<Callable<Object>> chunks = new ArrayList<Callable<Object>>((n + chunk - 1) / chunk);
+				for(int from = 0; from < n; from += chunk) {
+					final int chunk_from = from;
+					final int chunk_to = Math.min(n, from + chunk);
+					chunks.add(() -> { task.run(chunk_from, chunk_to); return null; });
+				}
+				
+				for(final Future<Object> f : executor().invokeAll(chunks)) { f.get(); }
+			}
+		} catch(InterruptedException | ExecutionException | RuntimeException e) {
+			System.err.println(error_message);
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Wraps ``task'' so that it records its metrics. Allocations made by the submitting thread
+	 * are not recorded, since the solver counts them itself.
+	 * @param submitted	When the work was handed to the pool.
+	 * @param submitter	The thread which handed it.
+	 */
+	ChunkTask timed(final ChunkTask task, final long submitted, final Thread submitter) {
+		return (from, to) -> {
+			final boolean worker = Thread.currentThread() != submitter;
+			final long allocated = worker ? SolverMetrics.thread_allocated_bytes() : 0;
+			final long started = System.nanoTime();
+			
+			task.run(from, to);
+			
+			final long finished = System.nanoTime();
+			metrics.record_task(started - submitted, finished - started, worker ? SolverMetrics.thread_allocated_bytes() - allocated : 0);
+		};
+	}
+	
+	/**
+	 * Number of threads which actually run the work.
+	 */
+	int parallelism() {
+		return (mode == ExecutionMode.SEQUENTIAL) ? 1 : n_threads;
+	}
+	
+	/**
+	 * The executor, started if this is the first run since construction or shutdown.
+	 */
+	synchronized ExecutorService executor() {
+		if(executor == null) { executor = initialise_executor(); }
+		return executor;
+	}
+	
+	/**
+	 * Releases the threads, until the next run.
+	 */
+	synchronized void shutdown() {
+		if(executor != null) { executor.shutdown(); }
+		executor = null;
+	}
+	
+	/**
+	 * Number of indices per chunk when processing n indices. When not fixed by the user,
+	 * we aim at a few chunks per thread, so that faster threads can pick up the slack.
+	 */
+	int chunk_size_for(final int n) {
+		if(chunk_size > 0) { return chunk_size; }
+		return Math.max(1, (n + 4 * n_threads - 1) / (4 * n_threads));
+	}
+	
+	ExecutorService initialise_executor() {
+		switch(mode) {
+			case SEQUENTIAL: return null;
+			case FORK_JOIN: return new ForkJoinPool(n_threads);
+			case VIRTUAL_THREADS: return new_virtual_thread_executor();
+			default: return new_fixed_thread_pool();
+		}
+	}
+	
+	/**
+	 * Fixed pool of daemon threads, so that a solver which is never shut down does not keep the JVM alive.
+	 */
+	ExecutorService new_fixed_thread_pool() {
+		return Executors.newFixedThreadPool(n_threads, r -> {
+			final Thread t = new Thread(r, "brkga-worker");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+	
+	/**
+	 * Virtual threads only exist from Java 21, so we look them up reflectively.
+	 */
+	ExecutorService new_virtual_thread_executor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException e) {
+			System.err.println("Virtual threads not available on this JVM: using " + n_threads + " platform threads instead.");
+			return new_fixed_thread_pool();
+		}
+	}
+	
+	/**
+	 * Fork-join action which splits a range of indices in halves until it is small enough.
+	 */
+	static class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		final ChunkTask task;
+		final int from;
+		final int to;
+		final int chunk;
+		
+		RangeAction(final ChunkTask task, final int from, final int to, final int chunk) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+		
+		@Override protected void compute() {
+			if(to - from <= chunk) {
+				task.run(from, to);
+			} else {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new RangeAction(task, from, mid, chunk), new RangeAction(task, mid, to, chunk));
+			}
+		}
+	}
+}
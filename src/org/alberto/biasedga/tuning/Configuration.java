@@ -0,0 +1,57 @@
+package org.alberto.biasedga.tuning;
+
+import org.alberto.biasedga.ParametersBuilder;
+
+/**
+ * One point of a ConfigurationSpace: a value for each of the parameters being tuned.
+ * @author alberto
+ *
+ */
+public class Configuration {
+	/**
+	 * Number of the configuration, in the order it was sampled.
+	 */
+	final int id;
+	
+	final int population_size;
+	final double elite_share;
+	final double new_individuals_share;
+	final double bias;
+	
+	Configuration(final int id, final int population_size, final double elite_share, final double new_individuals_share, final double bias) {
+		this.id = id;
+		this.population_size = population_size;
+		this.elite_share = elite_share;
+		this.new_individuals_share = new_individuals_share;
+		this.bias = bias;
+	}
+	
+	public int id() {
+		return id;
+	}
+	
+	/**
+	 * A builder with the parameters of this configuration, to which the experiment adds the others.
+	 */
+	public ParametersBuilder builder() {
+		return new ParametersBuilder()
+				.with_population_size(population_size)
+				.with_elite_share(elite_share)
+				.with_new_individuals_share(new_individuals_share)
+				.with_bias(bias);
+	}
+	
+	/**
+	 * The values of the parameters, separated by commas (see CSV_HEADER).
+	 */
+	public String to_csv() {
+		return id + "," + population_size + "," + elite_share + "," + new_individuals_share + "," + bias;
+	}
+	
+	public static final String CSV_HEADER = "id,population_size,elite_share,new_individuals_share,bias";
+	
+	@Override
+	public String toString() {
+		return String.format("#%d (population %d, elite %.3f, mutants %.3f, bias %.3f)", id, population_size, elite_share, new_individuals_share, bias);
+	}
+}
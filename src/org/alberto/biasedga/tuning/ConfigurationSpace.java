@@ -0,0 +1,53 @@
+package org.alberto.biasedga.tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alberto.biasedga.RandomStream;
+
+/**
+ * Ranges of the parameters to tune, from which we sample configurations uniformly
+ * at random. Only configurations in which elite and mutants leave room for at least
+ * some children (elite_share + new_individuals_share < 1) are kept.
+ * @author alberto
+ *
+ */
+public class ConfigurationSpace {
+	int min_population_size = 50;
+	int max_population_size = 500;
+	double min_elite_share = 0.05;
+	double max_elite_share = 0.3;
+	double min_new_individuals_share = 0.05;
+	double max_new_individuals_share = 0.3;
+	double min_bias = 0.5;
+	double max_bias = 0.9;
+	
+	public ConfigurationSpace with_population_size(final int min, final int max) { this.min_population_size = min; this.max_population_size = max; return this; }
+	public ConfigurationSpace with_elite_share(final double min, final double max) { this.min_elite_share = min; this.max_elite_share = max; return this; }
+	public ConfigurationSpace with_new_individuals_share(final double min, final double max) { this.min_new_individuals_share = min; this.max_new_individuals_share = max; return this; }
+	public ConfigurationSpace with_bias(final double min, final double max) { this.min_bias = min; this.max_bias = max; return this; }
+	
+	/**
+	 * Samples ``n'' configurations, drawing from the stream of ``seed''.
+	 */
+	public List<Configuration> sample(final int n, final long seed) {
+		final RandomStream prng = new RandomStream(seed);
+		final List<Configuration> configurations = new ArrayList<Configuration>(n);
+		
+		while(configurations.size() < n) {
+			final int population_size = min_population_size + prng.next_int(max_population_size - min_population_size + 1);
+			final double elite_share = uniform(prng, min_elite_share, max_elite_share);
+			final double new_individuals_share = uniform(prng, min_new_individuals_share, max_new_individuals_share);
+			final double bias = uniform(prng, min_bias, max_bias);
+			
+			if(elite_share + new_individuals_share >= 1) { continue; }
+			configurations.add(new Configuration(configurations.size(), population_size, elite_share, new_individuals_share, bias));
+		}
+		
+		return configurations;
+	}
+	
+	static double uniform(final RandomStream prng, final double min, final double max) {
+		return min + (max - min) * prng.next_double();
+	}
+}
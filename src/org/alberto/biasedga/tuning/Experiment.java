@@ -0,0 +1,23 @@
+package org.alberto.biasedga.tuning;
+
+/**
+ * What a Race runs: a configuration on one of a set of instances. Each block of the
+ * race runs all the configurations still in the race on the same instance, with the
+ * same seed, so that they are compared on equal terms.
+ * @author alberto
+ *
+ */
+public abstract class Experiment {
+	/**
+	 * Number of instances: the blocks of the race go through them in turn.
+	 */
+	public abstract int instances_num();
+	
+	public abstract String instance_name(final int instance);
+	
+	/**
+	 * Runs ``configuration'' on an instance. Called by several threads at once.
+	 * @param seed	The seed of the solver's random streams.
+	 */
+	public abstract Outcome run(final Configuration configuration, final int instance, final long seed);
+}
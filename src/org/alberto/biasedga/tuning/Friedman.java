@@ -0,0 +1,137 @@
+package org.alberto.biasedga.tuning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Friedman test, and the Conover post-hoc comparisons used by F-race (Birattari et al.,
+ * ``A racing algorithm for configuring metaheuristics'', GECCO 2002), on the outcomes of
+ * k configurations over b blocks. The quantiles of the chi-squared and t distributions
+ * are approximated (Wilson-Hilferty and Cornish-Fisher), which is plenty for racing.
+ * @author alberto
+ *
+ */
+class Friedman {
+	/**
+	 * Rank of each configuration in each block, with ties getting the average rank.
+	 */
+	final double[][] ranks;
+	
+	/**
+	 * Sum of the ranks of each configuration over all the blocks.
+	 */
+	final double[] rank_sums;
+	
+	/**
+	 * Number of blocks and of configurations.
+	 */
+	final int b;
+	final int k;
+	
+	/**
+	 * @param outcomes	outcomes[l][j] is the outcome of configuration j in block l.
+	 */
+	Friedman(final Outcome[][] outcomes) {
+		this.b = outcomes.length;
+		this.k = outcomes[0].length;
+		this.ranks = new double[b][];
+		this.rank_sums = new double[k];
+		
+		for(int l = 0; l < b; l++) {
+			ranks[l] = ranks(outcomes[l]);
+			for(int j = 0; j < k; j++) { rank_sums[j] += ranks[l][j]; }
+		}
+	}
+	
+	/**
+	 * Ranks (from 1) of the outcomes of a block, with ties getting the average rank.
+	 */
+	static double[] ranks(final Outcome[] block) {
+		final Integer[] sorted = new Integer[block.length];
+		for(int j = 0; j < block.length; j++) { sorted[j] = j; }
+		Arrays.sort(sorted, (x, y) -> block[x].compareTo(block[y]));
+		
+		final double[] ranks = new double[block.length];
+		for(int first = 0; first < block.length; ) {
+			int last = first;
+			while(last + 1 < block.length && block[sorted[last + 1]].compareTo(block[sorted[first]]) == 0) { last++; }
+			
+			for(int i = first; i <= last; i++) { ranks[sorted[i]] = (first + last) / 2.0 + 1; }
+			first = last + 1;
+		}
+		return ranks;
+	}
+	
+	/**
+	 * The configurations which are significantly worse than the best one, at level ``alpha''
+	 * (none, if the Friedman test does not reject the hypothesis that they are all equivalent).
+	 */
+	List<Integer> inferior(final double alpha) {
+		final List<Integer> inferior = new ArrayList<Integer>();
+		if(b < 2 || k < 2) { return inferior; }
+		
+		double a = 0;
+		for(int l = 0; l < b; l++) {
+			for(int j = 0; j < k; j++) { a += ranks[l][j] * ranks[l][j]; }
+		}
+		final double c = b * k * (k + 1) * (k + 1) / 4.0;
+		if(a - c <= 0) { return inferior; } // All the blocks are ties
+		
+		double deviations = 0;
+		for(int j = 0; j < k; j++) { deviations += Math.pow(rank_sums[j] - b * (k + 1) / 2.0, 2); }
+		final double t = (k - 1) * deviations / (a - c);
+		
+		if(t <= chi_squared_quantile(1 - alpha, k - 1)) { return inferior; }
+		
+		int best = 0;
+		for(int j = 1; j < k; j++) { if(rank_sums[j] < rank_sums[best]) { best = j; } }
+		
+		final int df = (b - 1) * (k - 1);
+		final double difference = t_quantile(1 - alpha / 2, df) * Math.sqrt(2 * b * (1 - t / (b * (k - 1))) * (a - c) / df);
+		for(int j = 0; j < k; j++) {
+			if(rank_sums[j] - rank_sums[best] > difference) { inferior.add(j); }
+		}
+		return inferior;
+	}
+	
+	/**
+	 * Quantile of the chi-squared distribution with ``df'' degrees of freedom (Wilson-Hilferty).
+	 */
+	static double chi_squared_quantile(final double p, final int df) {
+		final double h = 2.0 / (9 * df);
+		return df * Math.pow(1 - h + normal_quantile(p) * Math.sqrt(h), 3);
+	}
+	
+	/**
+	 * Quantile of Student's t distribution with ``df'' degrees of freedom (Cornish-Fisher expansion).
+	 */
+	static double t_quantile(final double p, final int df) {
+		final double z = normal_quantile(p);
+		final double z3 = z * z * z, z5 = z3 * z * z, z7 = z5 * z * z;
+		return z + (z3 + z) / (4.0 * df) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * df * df) + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384.0 * df * df * df);
+	}
+	
+	/**
+	 * Quantile of the standard normal distribution (Acklam's rational approximation).
+	 */
+	static double normal_quantile(final double p) {
+		final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+		final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01 };
+		final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+		final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00 };
+		final double low = 0.02425;
+		
+		if(p < low) {
+			final double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		}
+		if(p > 1 - low) {
+			return -normal_quantile(1 - p);
+		}
+		
+		final double q = p - 0.5;
+		final double r = q * q;
+		return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+	}
+}
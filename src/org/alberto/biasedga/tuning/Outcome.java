@@ -0,0 +1,39 @@
+package org.alberto.biasedga.tuning;
+
+/**
+ * Result of running a configuration on an instance. Outcomes are compared by how fast
+ * they reached the target: those which reached it come first, by time to target, and
+ * those which did not come afterwards, by the best fitness they found.
+ * @author alberto
+ *
+ */
+public class Outcome implements Comparable<Outcome> {
+	/**
+	 * Whether the solver reached the target fitness.
+	 */
+	final boolean reached;
+	
+	/**
+	 * Time the solver took to reach the target, if it did, or to give up otherwise. It is up
+	 * to the experiment to measure it in a way that the other runs do not disturb (e.g. as
+	 * the CPU time of the thread running a sequential solver).
+	 */
+	final double seconds;
+	
+	/**
+	 * Best fitness found.
+	 */
+	final double fitness;
+	
+	public Outcome(final boolean reached, final double seconds, final double fitness) {
+		this.reached = reached;
+		this.seconds = seconds;
+		this.fitness = fitness;
+	}
+	
+	@Override
+	public int compareTo(final Outcome other) {
+		if(reached != other.reached) { return reached ? -1 : 1; }
+		return reached ? Double.compare(seconds, other.seconds) : Double.compare(fitness, other.fitness);
+	}
+}
@@ -0,0 +1,225 @@
+package org.alberto.biasedga.tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * F-race: runs a set of configurations on a sequence of blocks (an instance and a seed,
+ * the same for all the configurations), and, once there are enough blocks, discards
+ * the configurations which the Friedman test says are worse than the best one. So the
+ * runs go to the configurations which are still in the race, rather than being spread
+ * evenly over all of them.
+ *
+ * The blocks go through the instances of the experiment in turn, one round at a time:
+ * all the runs of a round (each configuration still in the race, on each instance) go
+ * to a pool of ``n_workers'' threads. The solvers should run on a single thread each,
+ * and the experiment should time them so that the other runs of the round, which share
+ * the machine, do not affect the outcome (see Outcome.seconds).
+ * @author alberto
+ *
+ */
+public class Race {
+	/**
+	 * Result of a configuration in the race.
+	 */
+	public static class Result {
+		final Configuration configuration;
+		
+		/**
+		 * Outcome in each block (a configuration which was discarded has fewer).
+		 */
+		final List<Outcome> outcomes = new ArrayList<Outcome>();
+		
+		/**
+		 * Mean rank over the blocks it ran, at the last test it took part in.
+		 */
+		double mean_rank = 0;
+		
+		/**
+		 * Whether the configuration was not discarded.
+		 */
+		boolean survived = true;
+		
+		Result(final Configuration configuration) {
+			this.configuration = configuration;
+		}
+		
+		public Configuration configuration() { return configuration; }
+		public boolean survived() { return survived; }
+		public double mean_rank() { return mean_rank; }
+		public int blocks() { return outcomes.size(); }
+		
+		/**
+		 * Fraction of the runs which reached the target.
+		 */
+		public double success_rate() {
+			return outcomes.isEmpty() ? 0 : (double) outcomes.stream().filter(o -> o.reached).count() / outcomes.size();
+		}
+		
+		/**
+		 * Mean time to target, over the runs which reached it (NaN if none did).
+		 */
+		public double mean_time_to_target() {
+			return outcomes.stream().filter(o -> o.reached).mapToDouble(o -> o.seconds).average().orElse(Double.NaN);
+		}
+		
+		/**
+		 * Mean best fitness, over all the runs.
+		 */
+		public double mean_fitness() {
+			return outcomes.stream().mapToDouble(o -> o.fitness).average().orElse(Double.NaN);
+		}
+	}
+	
+	final Experiment experiment;
+	
+	/**
+	 * Results of all the configurations, and those still in the race.
+	 */
+	final List<Result> results = new ArrayList<Result>();
+	final List<Result> alive = new ArrayList<Result>();
+	
+	/**
+	 * Number of runs at the same time.
+	 */
+	final int n_workers;
+	
+	/**
+	 * Blocks to run before the first test.
+	 */
+	int min_blocks = 5;
+	
+	/**
+	 * At most how many blocks to run.
+	 */
+	int max_blocks = 50;
+	
+	/**
+	 * The race stops when this many configurations are left.
+	 */
+	int min_survivors = 1;
+	
+	/**
+	 * Significance level of the tests.
+	 */
+	double alpha = 0.05;
+	
+	/**
+	 * Seed of the first block; block b uses seed + b.
+	 */
+	long seed = 0;
+	
+	/**
+	 * Number of blocks run so far.
+	 */
+	int blocks = 0;
+	
+	public Race(final List<Configuration> configurations, final Experiment experiment, final int n_workers) {
+		this.experiment = experiment;
+		this.n_workers = n_workers;
+		
+		for(final Configuration configuration : configurations) {
+			results.add(new Result(configuration));
+		}
+		alive.addAll(results);
+	}
+	
+	public Race with_min_blocks(final int min_blocks) { this.min_blocks = min_blocks; return this; }
+	public Race with_max_blocks(final int max_blocks) { this.max_blocks = max_blocks; return this; }
+	public Race with_min_survivors(final int min_survivors) { this.min_survivors = min_survivors; return this; }
+	public Race with_alpha(final double alpha) { this.alpha = alpha; return this; }
+	public Race with_seed(final long seed) { this.seed = seed; return this; }
+	
+	/**
+	 * Runs the race, and returns the results of all the configurations, the survivors
+	 * first, each group by mean rank.
+	 */
+	public List<Result> run() {
+		final ExecutorService pool = Executors.newFixedThreadPool(n_workers, runnable -> {
+			final Thread thread = new Thread(runnable, "brkga-race-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		try {
+			while(blocks < max_blocks && alive.size() > min_survivors) {
+				run_round(pool);
+				if(blocks >= min_blocks) { eliminate(); }
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		if(blocks > 0) { test(); } // Ranks the survivors, even if the race ended before the first test
+		
+		final List<Result> sorted = new ArrayList<Result>(results);
+		sorted.sort((x, y) -> (x.survived != y.survived) ? (x.survived ? -1 : 1) : Double.compare(x.mean_rank, y.mean_rank));
+		return sorted;
+	}
+	
+	/**
+	 * Runs the configurations still in the race on the next block of each instance.
+	 */
+	void run_round(final ExecutorService pool) {
+		final int round = Math.min(experiment.instances_num(), max_blocks - blocks);
+		final List<List<Future<Outcome>>> futures = new ArrayList<List<Future<Outcome>>>(round);
+		
+		for(int b = 0; b < round; b++) {
+			final int instance = (blocks + b) % experiment.instances_num();
+			final long block_seed = seed + blocks + b;
+			
+			final List<Future<Outcome>> block = new ArrayList<Future<Outcome>>(alive.size());
+			for(final Result result : alive) {
+				block.add(pool.submit(() -> experiment.run(result.configuration, instance, block_seed)));
+			}
+			futures.add(block);
+		}
+		
+		try {
+			for(final List<Future<Outcome>> block : futures) {
+				for(int j = 0; j < alive.size(); j++) {
+					alive.get(j).outcomes.add(block.get(j).get());
+				}
+			}
+		} catch(InterruptedException | ExecutionException e) {
+			System.err.println("Fatal error while racing the configurations.");
+			e.printStackTrace();
+			System.exit(1);
+		}
+		
+		blocks += round;
+	}
+	
+	/**
+	 * Discards the configurations which are significantly worse than the best one, on all the blocks so far.
+	 */
+	void eliminate() {
+		final List<Integer> inferior = test().inferior(alpha);
+		for(int i = inferior.size() - 1; i >= 0; i--) {
+			alive.remove((int) inferior.get(i)).survived = false;
+		}
+	}
+	
+	/**
+	 * Ranks the configurations still in the race on all the blocks so far.
+	 */
+	Friedman test() {
+		final Outcome[][] outcomes = new Outcome[blocks][alive.size()];
+		for(int l = 0; l < blocks; l++) {
+			for(int j = 0; j < alive.size(); j++) { outcomes[l][j] = alive.get(j).outcomes.get(l); }
+		}
+		
+		final Friedman friedman = new Friedman(outcomes);
+		for(int j = 0; j < alive.size(); j++) {
+			alive.get(j).mean_rank = friedman.rank_sums[j] / blocks;
+		}
+		return friedman;
+	}
+	
+	public int blocks() {
+		return blocks;
+	}
+}
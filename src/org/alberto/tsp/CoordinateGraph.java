@@ -0,0 +1,150 @@
+package org.alberto.tsp;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A graph which only stores the coordinates of its nodes, and computes the distances
+ * on demand. It takes O(n) memory rather than O(n^2), which makes it the only option
+ * for very large instances.
+ * 
+ * Optionally, each thread can keep the full rows of the distance matrix for the last
+ * few nodes it asked about. This pays off when the same node is looked up over and
+ * over (e.g. when scanning its neighbours), but not when scanning a tour, where each
+ * node is only looked up twice.
+ * @author alberto
+ *
+ */
+public class CoordinateGraph extends Graph {
+	/**
+	 * Coordinates of the nodes (already converted by the distance function).
+	 */
+	final double[] x;
+	final double[] y;
+	
+	/**
+	 * How to compute distances.
+	 */
+	final DistanceFunction function;
+	
+	/**
+	 * Number of matrix rows cached by each thread (0 to disable the cache).
+	 */
+	final int cached_rows;
+	
+	/**
+	 * Per-thread row cache (null if disabled).
+	 */
+	final ThreadLocal<RowCache> row_caches;
+	
+	/**
+	 * Builds a graph from the coordinates of its nodes, as written in the instance.
+	 */
+	public CoordinateGraph(final double[] x, final double[] y, final DistanceFunction function) {
+		this(x, y, function, 0);
+	}
+	
+	/**
+	 * Builds a graph from the coordinates of its nodes, as written in the instance, where
+	 * each thread caches ``cached_rows'' rows of the distance matrix.
+	 */
+	public CoordinateGraph(final double[] x, final double[] y, final DistanceFunction function, final int cached_rows) {
+		this(x, y, function, cached_rows, false);
+	}
+	
+	/**
+	 * Builds a graph from the coordinates of its nodes which, if ``converted'', have
+	 * already been converted by the distance function (and are used as they are).
+	 */
+	CoordinateGraph(final double[] x, final double[] y, final DistanceFunction function, final int cached_rows, final boolean converted) {
+		assert(x.length == y.length);
+		
+		this.x = converted ? x : new double[x.length];
+		this.y = converted ? y : new double[y.length];
+		this.function = function;
+		this.cached_rows = cached_rows;
+		this.row_caches = (cached_rows > 0) ? ThreadLocal.withInitial(() -> new RowCache()) : null;
+		
+		if(!converted) {
+			for(int i = 0; i < x.length; i++) {
+				this.x[i] = function.convert(x[i]);
+				this.y[i] = function.convert(y[i]);
+			}
+		}
+	}
+	
+	@Override
+	public int nodes_num() {
+		return x.length;
+	}
+	
+	@Override
+	public double get_distance(final int i, final int j) {
+		assert(0 <= i && i < x.length);
+		assert(0 <= j && j < x.length);
+		
+		if(row_caches != null) { return row_caches.get().row(i)[j]; }
+		return compute_distance(i, j);
+	}
+	
+	double compute_distance(final int i, final int j) {
+		if(i == j) { return 0; }
+		return function.distance(x[i], y[i], x[j], y[j]);
+	}
+	
+	public DistanceFunction distance_function() {
+		return function;
+	}
+	
+	/**
+	 * Finds the nearest neighbours with a k-d tree, in O(n log n) time. All the planar
+	 * distance functions are non-decreasing in the Euclidean distance, so the neighbours
+	 * by Euclidean distance are also the nearest (and sorted) by the actual distance.
+	 * GEO distances are not planar: for them we scan the whole matrix.
+	 */
+	@Override
+	NeighbourIndex build_neighbour_index(final int k) {
+		if(function == DistanceFunction.GEO) { return super.build_neighbour_index(k); }
+		
+		final int n = x.length;
+		final int[] neighbours = new int[n * k];
+		final KDTree tree = new KDTree(x, y);
+		
+		IntStream.range(0, n).parallel().forEach(i -> tree.nearest(i, k, neighbours, i * k, new double[k]));
+		
+		return new NeighbourIndex(n, k, neighbours);
+	}
+	
+	/**
+	 * Direct-mapped cache of rows of the distance matrix: row i can only go in slot i % cached_rows.
+	 */
+	class RowCache {
+		/**
+		 * Which node's row is in each slot (-1 if none).
+		 */
+		final int[] nodes;
+		
+		/**
+		 * The cached rows.
+		 */
+		final double[][] rows;
+		
+		RowCache() {
+			this.nodes = new int[cached_rows];
+			this.rows = new double[cached_rows][x.length];
+			Arrays.fill(nodes, -1);
+		}
+		
+		double[] row(final int i) {
+			final int slot = i % cached_rows;
+			
+			if(nodes[slot] != i) {
+				final double[] row = rows[slot];
+				for(int j = 0; j < row.length; j++) { row[j] = compute_distance(i, j); }
+				nodes[slot] = i;
+			}
+			
+			return rows[slot];
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package org.alberto.tsp;
+
+/**
+ * How to compute the distance between two points, following the TSPLib conventions
+ * (see the EDGE_WEIGHT_TYPE section of the TSPLib documentation).
+ * @author alberto
+ *
+ */
+public enum DistanceFunction {
+	/**
+	 * Euclidean distance, without any rounding.
+	 */
+	EXACT_2D,
+	
+	/**
+	 * Euclidean distance, rounded to the nearest integer.
+	 */
+	EUC_2D,
+	
+	/**
+	 * Euclidean distance, rounded up.
+	 */
+	CEIL_2D,
+	
+	/**
+	 * Pseudo-Euclidean distance used by the att* instances.
+	 */
+	ATT,
+	
+	/**
+	 * Geographical distance, in km, between points given as (latitude, longitude) in the DDD.MM format.
+	 */
+	GEO;
+	
+	/**
+	 * Radius of the Earth, according to TSPLib.
+	 */
+	static final double EARTH_RADIUS = 6378.388;
+	
+	/**
+	 * The value of pi in the TSPLib definition of GEO: using Math.PI instead changes some
+	 * rounded distances, and so the lengths of the published optimal tours.
+	 */
+	static final double TSPLIB_PI = 3.141592;
+	
+	/**
+	 * Converts a coordinate, as written in the instance, into what ``distance'' expects.
+	 * Only GEO needs a conversion: from DDD.MM to radians.
+	 */
+	double convert(final double coordinate) {
+		if(this != GEO) { return coordinate; }
+		
+		final int degrees = (int) coordinate;
+		final double minutes = coordinate - degrees;
+		return TSPLIB_PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+	}
+	
+	/**
+	 * Distance between (xi, yi) and (xj, yj), which must have been converted with ``convert''.
+	 */
+	double distance(final double xi, final double yi, final double xj, final double yj) {
+		final double dx = xi - xj;
+		final double dy = yi - yj;
+		
+		switch(this) {
+			case EUC_2D: return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+			case CEIL_2D: return Math.ceil(Math.sqrt(dx * dx + dy * dy));
+			case ATT: {
+				final double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+				final int t = (int) (r + 0.5);
+				return (t < r) ? t + 1 : t;
+			}
+			case GEO: {
+				// Here x is the latitude and y the longitude
+				final double q1 = Math.cos(yi - yj);
+				final double q2 = Math.cos(xi - xj);
+				final double q3 = Math.cos(xi + xj);
+				return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+			}
+			default: return Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package org.alberto.tsp;
+
+/**
+ * Primitive type used to store the distances of a MatrixGraph.
+ * @author alberto
+ *
+ */
+public enum DistanceType {
+	DOUBLE, INT, SHORT;
+	
+	/**
+	 * Whether a distance can be stored in this type without any loss.
+	 */
+	public boolean can_hold(final double distance) {
+		switch(this) {
+			case SHORT: return distance == (short) distance;
+			case INT: return distance == (int) distance;
+			default: return true;
+		}
+	}
+	
+	/**
+	 * Narrowest type that can hold all the distances in the matrix.
+	 */
+	public static DistanceType narrowest_for(final double[][] distance) {
+		DistanceType type = SHORT;
+		
+		for(final double[] row : distance) {
+			for(final double d : row) {
+				while(!type.can_hold(d)) { type = DistanceType.values()[type.ordinal() - 1]; }
+			}
+		}
+		
+		return type;
+	}
+}
@@ -0,0 +1,33 @@
+package org.alberto.tsp;
+
+/**
+ * Matrix graph which stores distances as doubles.
+ * @author alberto
+ *
+ */
+public class DoubleMatrixGraph extends MatrixGraph {
+	/**
+	 * Flat distance matrix: see MatrixGraph.index.
+	 */
+	final double[] distance;
+	
+	DoubleMatrixGraph(final int n, final boolean packed, final double[] distance) {
+		super(n, packed);
+		this.distance = distance;
+	}
+	
+	@Override
+	public double get_distance(final int i, final int j) {
+		return distance[index(i, j)];
+	}
+	
+	@Override
+	void set(final int i, final int j, final double distance) {
+		this.distance[index(i, j)] = distance;
+	}
+	
+	@Override
+	public DistanceType distance_type() {
+		return DistanceType.DOUBLE;
+	}
+}
@@ -31,29 +31,20 @@ public class EuclideanGraphGenerator {
 	
 	/**
 	 * Generates a graph with nodes_num vertices, chosen at random inside a circle
-	 * of radius max_distance / 2.
+	 * of radius max_distance / 2. The graph only keeps the coordinates of its vertices,
+	 * so that we never need to materialise the (quadratic) distance matrix.
 	 */
 	public Graph generate() {
-		class Point { final double x; final double y; public Point(final double x, final double y) { this.x = x; this.y = y; } }
-		final Point[] points = new Point[nodes_num];
+		final double[] x = new double[nodes_num];
+		final double[] y = new double[nodes_num];
 		
 		for(int i = 0; i < nodes_num; i++) {
 			final double radius = Math.sqrt(prng.nextDouble() * max_distance / 2);
 			final double angle = prng.nextDouble() * 2 * Math.PI;
-			points[i] = new Point(radius * Math.cos(angle), radius * Math.sin(angle));
+			x[i] = radius * Math.cos(angle);
+			y[i] = radius * Math.sin(angle);
 		}
 		
-		final double[][] distance = new double[nodes_num][nodes_num];
-		
-		for(int i = 0; i < nodes_num; i++) {
-			distance[i][i] = 0;
-			for(int j = i + 1; j < nodes_num; j++) {
-				final double d = Math.sqrt(Math.pow(points[i].x - points[j].x, 2) + Math.pow(points[i].y - points[j].y, 2));
-				distance[i][j] = d;
-				distance[j][i] = d;
-			}
-		}
-		
-		return new Graph(distance);
+		return new CoordinateGraph(x, y, DistanceFunction.EXACT_2D);
 	}
 }
@@ -3,15 +3,33 @@ package org.alberto.tsp;
 /**
  * This class models a simple graph. The graph is complete and you can only
  * check the distance between the members.
+ * How the distances are stored is up to the subclasses: see from_matrix to
+ * pick the most compact storage for a given distance matrix.
+ * The graph can also tell which nodes are near each node: see nearest_neighbours.
  * @author alberto
  *
  */
 public class Graph {
 	/**
-	 * Distance matrix.
+	 * Distance matrix, for graphs built with the Graph(double[][]) constructor (null for the subclasses, which store the distances themselves).
 	 */
 	final double[][] distance;
 	
+	/**
+	 * Index of the nearest neighbours of each node, built the first time it is needed
+	 * (null until then). It is only replaced by an index with more neighbours per node.
+	 */
+	volatile NeighbourIndex neighbour_index = null;
+	
+	Graph() {
+		this.distance = null;
+	}
+	
+	/**
+	 * Wraps a full distance matrix, as is (not copied).
+	 * @deprecated Use from_matrix, which picks a more compact storage.
+	 */
+	@Deprecated
 	public Graph(final double[][] distance) {
 		this.distance = distance;
 	}
@@ -25,4 +43,61 @@ public class Graph {
 		assert(0 <= j && j < distance.length);
 		return distance[i][j];
 	}
+	
+	/**
+	 * Returns the index of (at least) the k nearest neighbours of each node, building it
+	 * if this is the first time that we need one with k neighbours. The index is shared,
+	 * and must not be modified.
+	 */
+	public NeighbourIndex nearest_neighbours(final int k) {
+		final int wanted = Math.min(k, nodes_num() - 1);
+		
+		NeighbourIndex index = neighbour_index;
+		if(index != null && index.k >= wanted) { return index; }
+		
+		synchronized(this) {
+			index = neighbour_index;
+			if(index == null || index.k < wanted) {
+				index = build_neighbour_index(wanted);
+				neighbour_index = index;
+			}
+			return index;
+		}
+	}
+	
+	/**
+	 * Builds the index of the k nearest neighbours of each node. By default it scans
+	 * the whole distance matrix (in parallel); subclasses can do better.
+	 */
+	NeighbourIndex build_neighbour_index(final int k) {
+		return NeighbourIndex.from_rows(this, k);
+	}
+	
+	/**
+	 * Builds a graph from a full distance matrix, using the most compact storage that
+	 * can hold it exactly: a packed triangular matrix if the distances are symmetric, and
+	 * a matrix of short or int if they are all integer and small enough.
+	 */
+	public static Graph from_matrix(final double[][] distance) {
+		return from_matrix(distance, DistanceType.narrowest_for(distance), MatrixGraph.is_symmetric(distance));
+	}
+	
+	/**
+	 * Builds a graph from a full distance matrix, using the given storage.
+	 * @param distance	The distance matrix.
+	 * @param type		How to store each distance.
+	 * @param packed	Whether to only store the lower triangle (only for symmetric distances).
+	 */
+	public static Graph from_matrix(final double[][] distance, final DistanceType type, final boolean packed) {
+		final int n = distance.length;
+		final MatrixGraph graph = MatrixGraph.allocate(n, type, packed);
+		
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < (packed ? i + 1 : n); j++) {
+				graph.set(i, j, distance[i][j]);
+			}
+		}
+		
+		return graph;
+	}
 }
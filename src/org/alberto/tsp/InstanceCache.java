@@ -0,0 +1,318 @@
+package org.alberto.tsp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary cache of TSPLib instances. The first time an instance is loaded, we parse
+ * it and write its distances (or coordinates) in a compact binary file next to it,
+ * named like the instance plus ``.bin''. The next times, as long as the instance
+ * did not change, we memory-map the binary file instead of parsing the instance.
+ * 
+ * The binary file is made of a HEADER_SIZE-byte header, followed by the raw data,
+ * all in little-endian order. The header contains:
+ * - MAGIC and VERSION (ints);
+ * - the kind of data (byte): MATRIX or COORDINATES;
+ * - for matrices, the DistanceType; for coordinates, the DistanceFunction (byte);
+ * - whether the matrix is packed (byte);
+ * - one unused byte;
+ * - the number of nodes (int);
+ * - size and last modification time of the instance it was built from (longs).
+ * Matrices are then stored as in MatrixGraph; coordinates as all the x's followed by
+ * all the y's, already converted by the DistanceFunction.
+ * 
+ * Optionally (see with_neighbours), the cache also keeps the index of the nearest
+ * neighbours of each node, in a second file named like the instance plus ``.knn''.
+ * Its header is the same, except for NEIGHBOURS_MAGIC, and for the number of
+ * neighbours per node (int) in place of the kind, type and packed bytes; it is
+ * followed by the flat array of the NeighbourIndex (ints).
+ * @author alberto
+ *
+ */
+public class InstanceCache {
+	static final int MAGIC = 0x42524B47; // "BRKG"
+	static final int NEIGHBOURS_MAGIC = 0x4E524B47; // "NRKG"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 64;
+	static final byte MATRIX = 0;
+	static final byte COORDINATES = 1;
+	
+	/**
+	 * The TSPLib instance.
+	 */
+	final Path instance;
+	
+	/**
+	 * The binary cache file.
+	 */
+	final Path cache;
+	
+	/**
+	 * The binary cache file of the neighbour index.
+	 */
+	final Path neighbours_cache;
+	
+	/**
+	 * Number of nearest neighbours of each node to load with the graph (0 for none).
+	 */
+	int neighbours_num = 0;
+	
+	public InstanceCache(final String filename) {
+		this.instance = Paths.get(filename);
+		this.cache = Paths.get(filename + ".bin");
+		this.neighbours_cache = Paths.get(filename + ".knn");
+	}
+	
+	/**
+	 * Also loads the index of the k nearest neighbours of each node (see Graph.nearest_neighbours)
+	 * together with the graph, from its own cache if it is up to date, otherwise by building it
+	 * (and then writing its cache for the next time).
+	 */
+	public InstanceCache with_neighbours(final int k) {
+		this.neighbours_num = k;
+		return this;
+	}
+	
+	/**
+	 * Loads the instance: from the cache if it is up to date, otherwise by parsing it
+	 * (and then writing the cache for the next time).
+	 */
+	public Graph load() {
+		final Graph graph = load_graph();
+		if(neighbours_num > 0) { load_neighbours(graph); }
+		return graph;
+	}
+	
+	Graph load_graph() {
+		try {
+			if(is_up_to_date(cache, MAGIC)) { return map(); }
+		} catch(IOException e) {
+			System.err.println("Ignoring unreadable instance cache: " + cache + " (" + e.getMessage() + ")");
+		}
+		
+		final Graph graph = new TSPLibGraphGenerator(instance.toString()).generate();
+		
+		try {
+			write(graph);
+			return map();
+		} catch(IOException | UnsupportedOperationException e) {
+			System.err.println("Cannot write instance cache: " + cache + " (" + e.getMessage() + ")");
+			return graph;
+		}
+	}
+	
+	/**
+	 * Loads the neighbour index of the graph from its cache, or builds it and writes its cache.
+	 */
+	void load_neighbours(final Graph graph) {
+		final int k = Math.min(neighbours_num, graph.nodes_num() - 1);
+		
+		try {
+			if(is_up_to_date(neighbours_cache, NEIGHBOURS_MAGIC)) {
+				final NeighbourIndex index = read_neighbours(graph.nodes_num(), k);
+				if(index != null) {
+					graph.neighbour_index = index;
+					return;
+				}
+			}
+		} catch(IOException e) {
+			System.err.println("Ignoring unreadable neighbour cache: " + neighbours_cache + " (" + e.getMessage() + ")");
+		}
+		
+		final NeighbourIndex index = graph.nearest_neighbours(k);
+		
+		try {
+			write_neighbours(index);
+		} catch(IOException e) {
+			System.err.println("Cannot write neighbour cache: " + neighbours_cache + " (" + e.getMessage() + ")");
+		}
+	}
+	
+	/**
+	 * Whether a cache file exists, has the given magic number, and was built from the
+	 * current version of the instance.
+	 */
+	boolean is_up_to_date(final Path file, final int magic) throws IOException {
+		if(!Files.exists(file)) { return false; }
+		
+		try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_SIZE) { return false; }
+			
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining() && channel.read(header) > 0) {}
+			header.flip();
+			
+			return header.getInt(0) == magic && header.getInt(4) == VERSION
+					&& header.getLong(16) == Files.size(instance)
+					&& header.getLong(24) == Files.getLastModifiedTime(instance).toMillis();
+		}
+	}
+	
+	/**
+	 * Memory-maps the cache. Matrices are read straight from the mapping; coordinates
+	 * (which only take O(n) memory) are copied onto the heap. A cache whose header is
+	 * inconsistent, or whose size does not match it (e.g. truncated), is rejected with
+	 * an IOException, so that we parse the instance again.
+	 */
+	Graph map() throws IOException {
+		try(final FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) { throw new IOException("Instance cache too large to be mapped"); }
+			
+			// The mapping stays valid after the channel is closed
+			final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			file.order(ByteOrder.LITTLE_ENDIAN);
+			
+			final byte kind = file.get(8);
+			final byte type = file.get(9);
+			final boolean packed = file.get(10) != 0;
+			final int n = file.getInt(12);
+			
+			if(n <= 0 || (kind != MATRIX && kind != COORDINATES) || file.get(10) > 1 || file.get(10) < 0
+					|| type < 0 || type >= ((kind == COORDINATES) ? DistanceFunction.values().length : DistanceType.values().length)) {
+				throw new IOException("Corrupt instance cache header");
+			}
+			
+			final long data_size = (kind == COORDINATES)
+					? 2L * n * Double.BYTES
+					: (packed ? (long) n * (n + 1) / 2 : (long) n * n) * bytes_per_distance(DistanceType.values()[type]);
+			if(channel.size() != HEADER_SIZE + data_size) { throw new IOException("Truncated instance cache"); }
+			
+			final ByteBuffer data = file.position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN);
+			
+			if(kind == COORDINATES) {
+				final double[] x = new double[n];
+				final double[] y = new double[n];
+				data.asDoubleBuffer().get(x).get(y);
+				return new CoordinateGraph(x, y, DistanceFunction.values()[type], 0, true);
+			}
+			
+			switch(DistanceType.values()[type]) {
+				case SHORT: return new MappedMatrixGraph(n, packed, data.asShortBuffer());
+				case INT: return new MappedMatrixGraph(n, packed, data.asIntBuffer());
+				default: return new MappedMatrixGraph(n, packed, data.asDoubleBuffer());
+			}
+		}
+	}
+	
+	/**
+	 * Writes the cache for a graph. We write to a temporary file first, and then move it
+	 * into place, so that other processes never see a half-written cache.
+	 */
+	void write(final Graph graph) throws IOException {
+		final int n = graph.nodes_num();
+		final byte kind, type;
+		final boolean packed;
+		final long data_size;
+		
+		if(graph instanceof CoordinateGraph) {
+			kind = COORDINATES;
+			type = (byte) ((CoordinateGraph) graph).function.ordinal();
+			packed = false;
+			data_size = 2L * n * Double.BYTES;
+		} else if(graph instanceof ShortMatrixGraph || graph instanceof IntMatrixGraph || graph instanceof DoubleMatrixGraph) {
+			final MatrixGraph matrix = (MatrixGraph) graph;
+			kind = MATRIX;
+			type = (byte) matrix.distance_type().ordinal();
+			packed = matrix.packed;
+			data_size = (long) MatrixGraph.storage_size(n, packed) * bytes_per_distance(matrix.distance_type());
+		} else {
+			throw new UnsupportedOperationException("Cannot cache graphs of type " + graph.getClass().getSimpleName());
+		}
+		
+		final Path temporary = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+		
+		try {
+			try(final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + data_size);
+				file.order(ByteOrder.LITTLE_ENDIAN);
+				
+				file.putInt(0, MAGIC).putInt(4, VERSION);
+				file.put(8, kind).put(9, type).put(10, (byte) (packed ? 1 : 0));
+				file.putInt(12, n);
+				file.putLong(16, Files.size(instance));
+				file.putLong(24, Files.getLastModifiedTime(instance).toMillis());
+				
+				final ByteBuffer data = file.position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN);
+				if(graph instanceof CoordinateGraph) {
+					data.asDoubleBuffer().put(((CoordinateGraph) graph).x).put(((CoordinateGraph) graph).y);
+				} else if(graph instanceof ShortMatrixGraph) {
+					data.asShortBuffer().put(((ShortMatrixGraph) graph).distance);
+				} else if(graph instanceof IntMatrixGraph) {
+					data.asIntBuffer().put(((IntMatrixGraph) graph).distance);
+				} else {
+					data.asDoubleBuffer().put(((DoubleMatrixGraph) graph).distance);
+				}
+				
+				file.force();
+			}
+			
+			Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Reads the neighbour index from its cache, onto the heap.
+	 * @return The index, or null if the cache is for a different number of nodes, or has less than k neighbours per node.
+	 */
+	NeighbourIndex read_neighbours(final int n, final int k) throws IOException {
+		try(final FileChannel channel = FileChannel.open(neighbours_cache, StandardOpenOption.READ)) {
+			final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			file.order(ByteOrder.LITTLE_ENDIAN);
+			
+			final int stored_k = file.getInt(8);
+			if(file.getInt(12) != n || stored_k < k) { return null; }
+			if(channel.size() != HEADER_SIZE + (long) n * stored_k * Integer.BYTES) { throw new IOException("Truncated neighbour cache"); }
+			
+			final int[] neighbours = new int[n * stored_k];
+			file.position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(neighbours);
+			return new NeighbourIndex(n, stored_k, neighbours);
+		}
+	}
+	
+	/**
+	 * Writes the cache of a neighbour index, through a temporary file as in write.
+	 */
+	void write_neighbours(final NeighbourIndex index) throws IOException {
+		final Path temporary = Files.createTempFile(neighbours_cache.toAbsolutePath().getParent(), neighbours_cache.getFileName().toString(), ".tmp");
+		
+		try {
+			try(final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) index.neighbours.length * Integer.BYTES);
+				file.order(ByteOrder.LITTLE_ENDIAN);
+				
+				file.putInt(0, NEIGHBOURS_MAGIC).putInt(4, VERSION);
+				file.putInt(8, index.k);
+				file.putInt(12, index.n);
+				file.putLong(16, Files.size(instance));
+				file.putLong(24, Files.getLastModifiedTime(instance).toMillis());
+				
+				file.position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(index.neighbours);
+				file.force();
+			}
+			
+			Files.move(temporary, neighbours_cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+	
+	static int bytes_per_distance(final DistanceType type) {
+		switch(type) {
+			case SHORT: return Short.BYTES;
+			case INT: return Integer.BYTES;
+			default: return Double.BYTES;
+		}
+	}
+}
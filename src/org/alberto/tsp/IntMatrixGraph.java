@@ -0,0 +1,46 @@
+package org.alberto.tsp;
+
+/**
+ * Matrix graph which stores distances as ints.
+ * @author alberto
+ *
+ */
+public class IntMatrixGraph extends MatrixGraph {
+	/**
+	 * Flat distance matrix: see MatrixGraph.index.
+	 */
+	final int[] distance;
+	
+	IntMatrixGraph(final int n, final boolean packed, final int[] distance) {
+		super(n, packed);
+		this.distance = distance;
+	}
+	
+	@Override
+	public double get_distance(final int i, final int j) {
+		return distance[index(i, j)];
+	}
+	
+	@Override
+	void set(final int i, final int j, final double distance) {
+		this.distance[index(i, j)] = (int) distance;
+	}
+	
+	/**
+	 * This graph, or a copy which stores its distances as shorts, if they all fit.
+	 */
+	MatrixGraph narrowest() {
+		for(final int d : distance) {
+			if(d != (short) d) { return this; }
+		}
+		
+		final short[] narrow = new short[distance.length];
+		for(int k = 0; k < distance.length; k++) { narrow[k] = (short) distance[k]; }
+		return new ShortMatrixGraph(n, packed, narrow);
+	}
+	
+	@Override
+	public DistanceType distance_type() {
+		return DistanceType.INT;
+	}
+}
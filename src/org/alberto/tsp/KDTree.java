@@ -0,0 +1,113 @@
+package org.alberto.tsp;
+
+/**
+ * A 2-d tree over a set of points, used to find the nearest neighbours of each point
+ * in O(n log n) time overall, rather than O(n^2).
+ *
+ * The tree is implicit: ``points'' is a permutation of the points such that, for each
+ * subtree covering the range [lo, hi), the splitting point is at the middle position
+ * of the range, the points before it are not greater along the splitting axis, and the
+ * points after it are not smaller. The axis alternates between x (at even depths) and y.
+ * Once built, the tree is read-only and can be queried by several threads at once.
+ * @author alberto
+ *
+ */
+class KDTree {
+	/**
+	 * Coordinates of the points.
+	 */
+	final double[] x;
+	final double[] y;
+
+	/**
+	 * The points, arranged as described above.
+	 */
+	final int[] points;
+
+	KDTree(final double[] x, final double[] y) {
+		this.x = x;
+		this.y = y;
+		this.points = new int[x.length];
+
+		for(int i = 0; i < points.length; i++) { points[i] = i; }
+		build(0, points.length, true);
+	}
+
+	void build(final int lo, final int hi, final boolean along_x) {
+		if(hi - lo <= 1) { return; }
+
+		final int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, along_x ? x : y);
+		build(lo, mid, !along_x);
+		build(mid + 1, hi, !along_x);
+	}
+
+	/**
+	 * Quickselect: rearranges points[lo..hi] so that points[target] is the one which would
+	 * be there if they were sorted by ``coordinate'', with the smaller ones before it and the
+	 * larger ones after it.
+	 */
+	void select(int lo, int hi, final int target, final double[] coordinate) {
+		while(lo < hi) {
+			final double pivot = coordinate[points[(lo + hi) >>> 1]];
+			int i = lo;
+			int j = hi;
+
+			while(i <= j) {
+				while(coordinate[points[i]] < pivot) { i++; }
+				while(coordinate[points[j]] > pivot) { j--; }
+				if(i <= j) {
+					final int tmp = points[i];
+					points[i] = points[j];
+					points[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+
+			// Now points[lo..j] <= pivot, points[j+1..i-1] == pivot, points[i..hi] >= pivot
+			if(target <= j) { hi = j; } else if(target >= i) { lo = i; } else { return; }
+		}
+	}
+
+	/**
+	 * Finds the k nearest points to point q (excluding q itself), by Euclidean distance.
+	 * @param nodes		Where to write them, sorted by distance, starting from nodes[base].
+	 * @param distances	Scratch memory for k squared distances.
+	 */
+	void nearest(final int q, final int k, final int[] nodes, final int base, final double[] distances) {
+		final int found = search(0, points.length, true, q, k, nodes, base, distances, 0);
+		assert(found == k);
+	}
+
+	/**
+	 * Searches the subtree covering [lo, hi), adding the points nearer to q than the current
+	 * k-th nearest to the list in ``nodes'' (see NeighbourIndex.insert).
+	 * @return The new number of points in the list.
+	 */
+	int search(final int lo, final int hi, final boolean along_x, final int q, final int k, final int[] nodes, final int base, final double[] distances, int size) {
+		if(lo >= hi) { return size; }
+
+		final int mid = (lo + hi) >>> 1;
+		final int p = points[mid];
+
+		if(p != q) {
+			final double dx = x[p] - x[q];
+			final double dy = y[p] - y[q];
+			final double d = dx * dx + dy * dy;
+			if(size < k || d < distances[k - 1]) { size = NeighbourIndex.insert(nodes, base, distances, size, k, p, d); }
+		}
+
+		// Visit first the side of the split where q is, then the other one only if it can contain nearer points
+		final double offset = along_x ? x[q] - x[p] : y[q] - y[p];
+		if(offset < 0) {
+			size = search(lo, mid, !along_x, q, k, nodes, base, distances, size);
+			if(size < k || offset * offset < distances[k - 1]) { size = search(mid + 1, hi, !along_x, q, k, nodes, base, distances, size); }
+		} else {
+			size = search(mid + 1, hi, !along_x, q, k, nodes, base, distances, size);
+			if(size < k || offset * offset < distances[k - 1]) { size = search(lo, mid, !along_x, q, k, nodes, base, distances, size); }
+		}
+
+		return size;
+	}
+}
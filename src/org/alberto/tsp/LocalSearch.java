@@ -0,0 +1,343 @@
+package org.alberto.tsp;
+
+/**
+ * Improves a tour with 2-opt and Or-opt moves, until it reaches a local optimum
+ * or it has applied a maximum number of moves.
+ *
+ * As usual for large instances, each node only looks for moves which connect it
+ * to one of its k nearest neighbours, and it stops scanning its (sorted) list as
+ * soon as the new edge alone is longer than the edge it would replace. Nodes are
+ * kept in a queue and processed until none of them can find an improving move:
+ * when a node fails it gets its ``don't-look bit'', and it only goes back into
+ * the queue when one of its edges changes.
+ *
+ * The tour is an array of nodes, with the inverse array of positions. Or-opt moves
+ * (i.e. moving a segment of up to MAX_SEGMENT nodes elsewhere, possibly reversed)
+ * shift the nodes between the old and new position of the segment, on whichever
+ * side is shorter.
+ *
+ * All the scratch memory is allocated once, so an object should be reused for many
+ * tours (but not shared across threads). The neighbour index is shared.
+ * @author alberto
+ *
+ */
+public class LocalSearch {
+	/**
+	 * Maximum length of the segments moved by Or-opt.
+	 */
+	static final int MAX_SEGMENT = 3;
+
+	/**
+	 * Minimum gain for a move to count as improving (to avoid cycling on rounding errors).
+	 */
+	static final double EPS = 1e-7;
+
+	/**
+	 * The underlying TSP graph.
+	 */
+	final Graph graph;
+
+	/**
+	 * Number of nodes.
+	 */
+	final int n;
+
+	/**
+	 * The nearest neighbours of each node, sorted by distance: those of node i are
+	 * neighbours[i*stride], ..., neighbours[i*stride + stride - 1].
+	 */
+	final int[] neighbours;
+
+	/**
+	 * Number of neighbours of each node in ``neighbours''.
+	 */
+	final int stride;
+
+	/**
+	 * Number of neighbours of each node we look at (at most ``stride'').
+	 */
+	final int k;
+
+	/**
+	 * Maximum number of moves applied to a tour.
+	 */
+	final int max_moves;
+
+	/**
+	 * The tour being improved.
+	 */
+	int[] tour;
+
+	/**
+	 * Position of each node in ``tour''.
+	 */
+	final int[] position;
+
+	/**
+	 * Circular queue of the nodes which still have to look for improving moves.
+	 */
+	final int[] queue;
+
+	/**
+	 * Whether each node is in the queue (i.e. its don't-look bit is off).
+	 */
+	final boolean[] queued;
+
+	/**
+	 * Position of the first node in the queue, and number of nodes in it.
+	 */
+	int head, queue_size;
+
+	/**
+	 * Scratch memory for the segment moved by Or-opt.
+	 */
+	final int[] segment = new int[MAX_SEGMENT];
+
+	/**
+	 * @param graph		The underlying TSP graph.
+	 * @param index		The index of the nearest neighbours of each node, see Graph.nearest_neighbours.
+	 * @param k			The number of neighbours of each node we look at.
+	 * @param max_moves	The maximum number of moves applied to a tour.
+	 */
+	public LocalSearch(final Graph graph, final NeighbourIndex index, final int k, final int max_moves) {
+		this.graph = graph;
+		this.n = graph.nodes_num();
+		this.neighbours = index.neighbours;
+		this.stride = index.k;
+		this.k = Math.min(k, index.k);
+		this.max_moves = max_moves;
+		this.position = new int[n];
+		this.queue = new int[n];
+		this.queued = new boolean[n];
+	}
+
+	/**
+	 * Improves a tour in place.
+	 * @param tour		The tour to improve: it is overwritten with the improved tour.
+	 * @param length	The length of the tour.
+	 * @return			The length of the improved tour.
+	 */
+	public double improve(final int[] tour, final double length) {
+		if(n < 2 * MAX_SEGMENT + 2) { return length; }
+
+		this.tour = tour;
+		head = 0;
+		queue_size = 0;
+		for(int p = 0; p < n; p++) {
+			position[tour[p]] = p;
+			queued[tour[p]] = false;
+			push(tour[p]);
+		}
+
+		int moves = 0;
+		while(queue_size > 0 && moves < max_moves) {
+			final int a = pop();
+
+			if(two_opt(a) || or_opt(a)) {
+				moves++;
+				push(a);
+			}
+		}
+
+		// Re-compute the length from scratch, rather than accumulating rounding errors
+		return (moves == 0) ? length : tour_length();
+	}
+
+	/**
+	 * Looks for an improving 2-opt move which adds an edge from ``a'' to one of its
+	 * neighbours, and applies the first one found.
+	 * @return Whether it applied a move.
+	 */
+	boolean two_opt(final int a) {
+		for(int direction = 0; direction < 2; direction++) {
+			final boolean forward = (direction == 0);
+			final int b = forward ? next(a) : previous(a);
+			final double d_ab = graph.get_distance(a, b);
+
+			for(int i = a * stride; i < a * stride + k; i++) {
+				final int c = neighbours[i];
+				final double gain = d_ab - graph.get_distance(a, c);
+				if(gain <= EPS) { break; }
+
+				final int d = forward ? next(c) : previous(c);
+				if(c == b || d == a) { continue; }
+
+				// Replace edges (a, b) and (c, d) with (a, c) and (b, d)
+				if(gain + graph.get_distance(c, d) - graph.get_distance(b, d) > EPS) {
+					if(forward) { reverse(position[b], position[c]); } else { reverse(position[a], position[d]); }
+					push(b);
+					push(c);
+					push(d);
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Looks for an improving Or-opt move of a segment which starts or ends at ``a'', which
+	 * adds an edge from ``a'' to one of its neighbours, and applies the first one found.
+	 * @return Whether it applied a move.
+	 */
+	boolean or_opt(final int a) {
+		for(int length = 1; length <= MAX_SEGMENT; length++) {
+			// The segment either starts or ends at ``a''
+			for(int direction = 0; direction < 2; direction++) {
+				if(length == 1 && direction == 1) { break; }
+
+				final int first_position = (direction == 0) ? position[a] : wrap(position[a] - length + 1);
+				final int first = tour[first_position];
+				final int last = tour[wrap(first_position + length - 1)];
+				final int before = previous(first);
+				final int after = next(last);
+
+				// Gain for taking the segment out of the tour
+				final double removal = graph.get_distance(before, first) + graph.get_distance(last, after) - graph.get_distance(before, after);
+
+				for(int i = a * stride; i < a * stride + k; i++) {
+					final int c = neighbours[i];
+					if(graph.get_distance(a, c) >= removal - EPS) { break; }
+					if(in_segment(c, first_position, length)) { continue; }
+
+					// Insert the segment either after c or before it, so that ``a'' ends up next to c
+					for(int side = 0; side < 2; side++) {
+						final int x = (side == 0) ? c : previous(c);
+						final int y = next(x);
+						if(in_segment(x, first_position, length) || in_segment(y, first_position, length)) { continue; }
+
+						// The segment goes between x and y: reversed if ``a'' has to be next to x but it is last, or vice versa
+						final boolean reversed = (side == 0) == (a == last);
+						final int head_node = reversed ? last : first;
+						final int tail_node = reversed ? first : last;
+						final double insertion = graph.get_distance(x, head_node) + graph.get_distance(tail_node, y) - graph.get_distance(x, y);
+
+						if(removal - insertion > EPS) {
+							move_segment(first_position, length, x, reversed);
+							push(before);
+							push(after);
+							push(first);
+							push(last);
+							push(x);
+							push(y);
+							return true;
+						}
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reverses the part of the tour which goes (forward) from position i to position j.
+	 * If it is longer than half of the tour, reverses the rest of the tour instead: it
+	 * gives the same cycle, just travelled in the opposite direction.
+	 */
+	void reverse(int i, int j) {
+		int length = wrap(j - i) + 1;
+		if(2 * length > n) {
+			final int tmp = i;
+			i = wrap(j + 1);
+			j = wrap(tmp - 1);
+			length = n - length;
+		}
+
+		for(int s = 0; s < length / 2; s++) {
+			final int u = tour[i];
+			final int v = tour[j];
+			tour[i] = v;
+			position[v] = i;
+			tour[j] = u;
+			position[u] = j;
+			i = (i + 1 == n) ? 0 : i + 1;
+			j = (j == 0) ? n - 1 : j - 1;
+		}
+	}
+
+	/**
+	 * Moves the segment of ``length'' nodes which starts at position ``from'', so that it
+	 * goes right after node x (possibly reversed). The nodes in between shift by ``length''
+	 * positions, on whichever side of the segment is shorter.
+	 */
+	void move_segment(final int from, final int length, final int x, final boolean reversed) {
+		for(int s = 0; s < length; s++) {
+			segment[reversed ? length - 1 - s : s] = tour[wrap(from + s)];
+		}
+
+		// Number of nodes between the end of the segment and x (included), and between x's successor and the start of the segment
+		final int forward_gap = wrap(position[x] - wrap(from + length - 1));
+		final int backward_gap = n - length - forward_gap;
+
+		int start;
+		if(forward_gap <= backward_gap) {
+			// Shift the nodes after the segment back, and put the segment after them
+			for(int s = 0; s < forward_gap; s++) { place(tour[wrap(from + length + s)], wrap(from + s)); }
+			start = wrap(from + forward_gap);
+		} else {
+			// Shift the nodes before the segment forward, and put the segment before them
+			for(int s = 1; s <= backward_gap; s++) { place(tour[wrap(from - s)], wrap(from - s + length)); }
+			start = wrap(from - backward_gap);
+		}
+
+		for(int s = 0; s < length; s++) { place(segment[s], wrap(start + s)); }
+	}
+
+	/**
+	 * Puts a node at a position of the tour.
+	 */
+	void place(final int node, final int p) {
+		tour[p] = node;
+		position[node] = p;
+	}
+
+	/**
+	 * Whether ``node'' is in the segment of ``length'' nodes which starts at position ``from''.
+	 */
+	boolean in_segment(final int node, final int from, final int length) {
+		return wrap(position[node] - from) < length;
+	}
+
+	int next(final int node) {
+		final int p = position[node] + 1;
+		return tour[(p == n) ? 0 : p];
+	}
+
+	int previous(final int node) {
+		final int p = position[node];
+		return tour[(p == 0) ? n - 1 : p - 1];
+	}
+
+	/**
+	 * Brings a position, which can be off by less than n in either direction, back into [0, n).
+	 */
+	int wrap(final int p) {
+		return (p < 0) ? p + n : (p >= n) ? p - n : p;
+	}
+
+	void push(final int node) {
+		if(queued[node]) { return; }
+		queued[node] = true;
+		queue[wrap(head + queue_size)] = node;
+		queue_size++;
+	}
+
+	int pop() {
+		final int node = queue[head];
+		queued[node] = false;
+		head = (head + 1 == n) ? 0 : head + 1;
+		queue_size--;
+		return node;
+	}
+
+	/**
+	 * Length of the closed tour.
+	 */
+	double tour_length() {
+		double length = graph.get_distance(tour[n - 1], tour[0]);
+		for(int p = 0; p < n - 1; p++) { length += graph.get_distance(tour[p], tour[p + 1]); }
+		return length;
+	}
+}
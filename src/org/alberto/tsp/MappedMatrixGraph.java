@@ -0,0 +1,65 @@
+package org.alberto.tsp;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Matrix graph whose distances are read directly from a memory-mapped file (see
+ * InstanceCache). The distances never touch the heap, and all the processes which
+ * map the same file share the same copy in the page cache.
+ * @author alberto
+ *
+ */
+public class MappedMatrixGraph extends MatrixGraph {
+	/**
+	 * How the distances are stored in the file.
+	 */
+	final DistanceType type;
+	
+	/**
+	 * View of the file's distances: only the one corresponding to ``type'' is not null.
+	 */
+	final ShortBuffer shorts;
+	final IntBuffer ints;
+	final DoubleBuffer doubles;
+	
+	MappedMatrixGraph(final int n, final boolean packed, final ShortBuffer shorts) {
+		this(n, packed, DistanceType.SHORT, shorts, null, null);
+	}
+	
+	MappedMatrixGraph(final int n, final boolean packed, final IntBuffer ints) {
+		this(n, packed, DistanceType.INT, null, ints, null);
+	}
+	
+	MappedMatrixGraph(final int n, final boolean packed, final DoubleBuffer doubles) {
+		this(n, packed, DistanceType.DOUBLE, null, null, doubles);
+	}
+	
+	MappedMatrixGraph(final int n, final boolean packed, final DistanceType type, final ShortBuffer shorts, final IntBuffer ints, final DoubleBuffer doubles) {
+		super(n, packed);
+		this.type = type;
+		this.shorts = shorts;
+		this.ints = ints;
+		this.doubles = doubles;
+	}
+	
+	@Override
+	public double get_distance(final int i, final int j) {
+		switch(type) {
+			case SHORT: return shorts.get(index(i, j));
+			case INT: return ints.get(index(i, j));
+			default: return doubles.get(index(i, j));
+		}
+	}
+	
+	@Override
+	void set(final int i, final int j, final double distance) {
+		throw new UnsupportedOperationException("Memory-mapped graphs are read-only");
+	}
+	
+	@Override
+	public DistanceType distance_type() {
+		return type;
+	}
+}
@@ -0,0 +1,93 @@
+package org.alberto.tsp;
+
+/**
+ * A graph whose distances are all stored in one flat array. The matrix is either
+ * stored in full, row after row, or -- for symmetric distances -- packed, i.e. we only
+ * store its lower triangle, again row after row. The subclasses store the distances
+ * as different primitive types.
+ * @author alberto
+ *
+ */
+public abstract class MatrixGraph extends Graph {
+	/**
+	 * Number of nodes.
+	 */
+	final int n;
+	
+	/**
+	 * Whether we only store the lower triangle.
+	 */
+	final boolean packed;
+	
+	MatrixGraph(final int n, final boolean packed) {
+		this.n = n;
+		this.packed = packed;
+	}
+	
+	/**
+	 * Allocates a graph with n nodes, whose distances are not set yet.
+	 */
+	static MatrixGraph allocate(final int n, final DistanceType type, final boolean packed) {
+		final int size = storage_size(n, packed);
+		
+		switch(type) {
+			case SHORT: return new ShortMatrixGraph(n, packed, new short[size]);
+			case INT: return new IntMatrixGraph(n, packed, new int[size]);
+			default: return new DoubleMatrixGraph(n, packed, new double[size]);
+		}
+	}
+	
+	/**
+	 * Number of distances stored for a graph with n nodes.
+	 */
+	static int storage_size(final int n, final boolean packed) {
+		final long size = packed ? (long) n * (n + 1) / 2 : (long) n * n;
+		
+		if(size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many nodes to store the distance matrix " + (packed ? "(packed)" : "(full)") + ": " + n);
+		}
+		
+		return (int) size;
+	}
+	
+	static boolean is_symmetric(final double[][] distance) {
+		for(int i = 0; i < distance.length; i++) {
+			for(int j = 0; j < i; j++) {
+				if(distance[i][j] != distance[j][i]) { return false; }
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int nodes_num() {
+		return n;
+	}
+	
+	/**
+	 * Position of the distance between i and j in the flat array.
+	 */
+	final int index(final int i, final int j) {
+		assert(0 <= i && i < n);
+		assert(0 <= j && j < n);
+		
+		if(!packed) { return i * n + j; }
+		
+		// i * (i + 1) may overflow an int, but it always fits in 32 unsigned bits, hence the >>>
+		return (i >= j) ? (i * (i + 1) >>> 1) + j : (j * (j + 1) >>> 1) + i;
+	}
+	
+	/**
+	 * Sets the distance between i and j (and between j and i, if packed).
+	 */
+	abstract void set(final int i, final int j, final double distance);
+	
+	/**
+	 * The type used to store the distances.
+	 */
+	public abstract DistanceType distance_type();
+	
+	public boolean is_packed() {
+		return packed;
+	}
+}
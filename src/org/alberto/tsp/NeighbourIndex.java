@@ -0,0 +1,104 @@
+package org.alberto.tsp;
+
+import java.util.stream.IntStream;
+
+/**
+ * The k nearest neighbours of each node of a graph, sorted by distance, stored in
+ * one flat array: those of node i are neighbours[i*k], ..., neighbours[i*k + k - 1].
+ * Once built, the index is never modified, so it can be shared by any number of threads.
+ * See Graph.nearest_neighbours to get the index of a graph.
+ * @author alberto
+ *
+ */
+public class NeighbourIndex {
+	/**
+	 * Number of nodes.
+	 */
+	final int n;
+
+	/**
+	 * Number of neighbours of each node.
+	 */
+	final int k;
+
+	/**
+	 * The neighbour lists.
+	 */
+	final int[] neighbours;
+
+	NeighbourIndex(final int n, final int k, final int[] neighbours) {
+		assert(neighbours.length == n * k);
+
+		this.n = n;
+		this.k = k;
+		this.neighbours = neighbours;
+	}
+
+	/**
+	 * Number of neighbours of each node (which can be more than what was asked for).
+	 */
+	public int k() {
+		return k;
+	}
+
+	/**
+	 * The r-th nearest neighbour of node i (r = 0 is the nearest).
+	 */
+	public int neighbour(final int i, final int r) {
+		return neighbours[i * k + r];
+	}
+
+	/**
+	 * The flat array of neighbour lists. It must not be modified.
+	 */
+	public int[] neighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * Builds the index by scanning the whole row of the distance matrix of each node,
+	 * which takes O(n^2) time: the rows are scanned in parallel.
+	 */
+	static NeighbourIndex from_rows(final Graph graph, final int k) {
+		final int n = graph.nodes_num();
+		final int[] neighbours = new int[n * k];
+
+		IntStream.range(0, n).parallel().forEach(i -> {
+			final double[] distances = new double[k];
+			int size = 0;
+
+			for(int j = 0; j < n; j++) {
+				if(j == i) { continue; }
+
+				final double d = graph.get_distance(i, j);
+				if(size == k && d >= distances[k - 1]) { continue; }
+
+				size = insert(neighbours, i * k, distances, size, k, j, d);
+			}
+		});
+
+		return new NeighbourIndex(n, k, neighbours);
+	}
+
+	/**
+	 * Inserts node j, at distance d, in a list sorted by distance which holds at most
+	 * ``capacity'' nodes, dropping the farthest one if it is full.
+	 * @param nodes		The nodes in the list start at nodes[base].
+	 * @param distances	Their distances.
+	 * @param size		The number of nodes in the list.
+	 * @return			The new number of nodes in the list.
+	 */
+	static int insert(final int[] nodes, final int base, final double[] distances, final int size, final int capacity, final int j, final double d) {
+		int p = (size < capacity) ? size : capacity - 1;
+
+		while(p > 0 && distances[p - 1] > d) {
+			distances[p] = distances[p - 1];
+			nodes[base + p] = nodes[base + p - 1];
+			p--;
+		}
+		distances[p] = d;
+		nodes[base + p] = j;
+
+		return (size < capacity) ? size + 1 : size;
+	}
+}
@@ -0,0 +1,33 @@
+package org.alberto.tsp;
+
+/**
+ * Matrix graph which stores distances as shorts.
+ * @author alberto
+ *
+ */
+public class ShortMatrixGraph extends MatrixGraph {
+	/**
+	 * Flat distance matrix: see MatrixGraph.index.
+	 */
+	final short[] distance;
+	
+	ShortMatrixGraph(final int n, final boolean packed, final short[] distance) {
+		super(n, packed);
+		this.distance = distance;
+	}
+	
+	@Override
+	public double get_distance(final int i, final int j) {
+		return distance[index(i, j)];
+	}
+	
+	@Override
+	void set(final int i, final int j, final double distance) {
+		this.distance[index(i, j)] = (short) distance;
+	}
+	
+	@Override
+	public DistanceType distance_type() {
+		return DistanceType.SHORT;
+	}
+}
@@ -1,54 +1,158 @@
-package org.alberto.tsp;
-
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-/**
- * This a generator for graphs from TSPLib instances.
- * @author santinia
- *
- */
-public class TSPLibGraphGenerator {
-	/**
-	 * TSPLib file name.
-	 */
-	final String filename;
-	
-	public TSPLibGraphGenerator(final String filename) {
-		this.filename = filename;
-	}
-	
-	public Graph generate() {
-		try(Stream<String> stream = Files.lines(Paths.get(filename))) {
-			final List<Integer> distances = stream
-					.map(str -> str.split(" "))						// Split each line by spaces
-					.flatMap(ary -> Arrays.asList(ary).stream())	// Flatten the list of lists
-					.filter(str -> !str.isEmpty()) 					// Remove empty strings
-					.map(Integer::parseInt)							// Parse each entry as an integer
-					.collect(Collectors.toList());					// Put everything in one list
-			
-			final int num_nodes = distances.get(0);
-			final double[][] distmatrix = new double[num_nodes][num_nodes];
-			
-			int current = 1;
-			for(int i = 0; i < num_nodes; i++) {
-				for(int j = 0; j <= i; j++) {
-					distmatrix[i][j] = distances.get(current);
-					distmatrix[j][i] = distances.get(current);
-					current++;
-				}
-			}
-			
-			return new Graph(distmatrix);
-		} catch(IOException e) {
-			System.err.println("Cannot read TSPLib data file: " + filename);
-			System.exit(1);
-			return new Graph(new double[0][0]); // Cheat java into thinking we are returning something.
-		}
-	}
-}
+package org.alberto.tsp;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * This a generator for graphs from TSPLib instances.
+ * It understands the standard TSPLib header (in particular EDGE_WEIGHT_TYPE, which
+ * can be EXPLICIT, EUC_2D, CEIL_2D, ATT or GEO; and EDGE_WEIGHT_FORMAT, which can be
+ * FULL_MATRIX, UPPER_ROW, LOWER_ROW, UPPER_DIAG_ROW or LOWER_DIAG_ROW), as well as
+ * headerless files made of the number of nodes followed by the distances in
+ * LOWER_DIAG_ROW format.
+ * The file is parsed as a stream of bytes, and the numbers go straight into the
+ * graph, without any intermediate collection.
+ * @author santinia
+ *
+ */
+public class TSPLibGraphGenerator {
+	/**
+	 * TSPLib file name.
+	 */
+	final String filename;
+	
+	public TSPLibGraphGenerator(final String filename) {
+		this.filename = filename;
+	}
+	
+	public Graph generate() {
+		try(final TSPLibTokenizer in = new TSPLibTokenizer(Paths.get(filename))) {
+			// Old-style headerless file
+			if(in.at_number()) {
+				final int n = (int) in.next_number();
+				return read_edge_weights(in, n, "LOWER_DIAG_ROW");
+			}
+			
+			int n = -1;
+			String edge_weight_type = "EXPLICIT";
+			String edge_weight_format = "FULL_MATRIX";
+			String keyword;
+			
+			while((keyword = in.next_keyword()) != null) {
+				switch(keyword) {
+					case "DIMENSION": n = Integer.parseInt(in.rest_of_line()); break;
+					case "EDGE_WEIGHT_TYPE": edge_weight_type = in.rest_of_line(); break;
+					case "EDGE_WEIGHT_FORMAT": edge_weight_format = in.rest_of_line(); break;
+					case "EDGE_WEIGHT_SECTION":
+						check_dimension(n);
+						return read_edge_weights(in, n, edge_weight_format);
+					case "NODE_COORD_SECTION":
+						check_dimension(n);
+						if(!edge_weight_type.equals("EXPLICIT")) {
+							return read_coordinates(in, n, edge_weight_type);
+						}
+						skip_numbers(in, 3 * n); // Coordinates only used for display
+						break;
+					case "DISPLAY_DATA_SECTION":
+						check_dimension(n);
+						skip_numbers(in, 3 * n);
+						break;
+					case "EOF":
+						fail("No distances nor coordinates found");
+						break;
+					default: in.rest_of_line(); // NAME, TYPE, COMMENT, etc.
+				}
+			}
+			
+			fail("No distances nor coordinates found");
+		} catch(IOException | NumberFormatException e) {
+			System.err.println("Cannot read TSPLib data file: " + filename + " (" + e.getMessage() + ")");
+			System.exit(1);
+		}
+		
+		return Graph.from_matrix(new double[0][0]); // Cheat java into thinking we are returning something.
+	}
+	
+	/**
+	 * Reads an EDGE_WEIGHT_SECTION. The symmetric formats go into a packed matrix, the full matrix into
+	 * a full one. TSPLib distances are integers, so we read them as int, and then move them into a
+	 * short matrix if they are small enough.
+	 */
+	MatrixGraph read_edge_weights(final TSPLibTokenizer in, final int n, final String format) throws IOException {
+		final boolean packed = !format.equals("FULL_MATRIX");
+		final IntMatrixGraph graph = (IntMatrixGraph) MatrixGraph.allocate(n, DistanceType.INT, packed);
+		
+		switch(format) {
+			case "FULL_MATRIX":
+				for(int i = 0; i < n; i++) { for(int j = 0; j < n; j++) { graph.set(i, j, next_distance(in)); } }
+				break;
+			case "LOWER_DIAG_ROW":
+				for(int i = 0; i < n; i++) { for(int j = 0; j <= i; j++) { graph.set(i, j, next_distance(in)); } }
+				break;
+			case "LOWER_ROW":
+				for(int i = 0; i < n; i++) { for(int j = 0; j < i; j++) { graph.set(i, j, next_distance(in)); } }
+				break;
+			case "UPPER_DIAG_ROW":
+				for(int i = 0; i < n; i++) { for(int j = i; j < n; j++) { graph.set(i, j, next_distance(in)); } }
+				break;
+			case "UPPER_ROW":
+				for(int i = 0; i < n; i++) { for(int j = i + 1; j < n; j++) { graph.set(i, j, next_distance(in)); } }
+				break;
+			default: fail("Unsupported EDGE_WEIGHT_FORMAT: " + format);
+		}
+		
+		return graph.narrowest();
+	}
+	
+	/**
+	 * Reads the next distance, which must be an integer.
+	 */
+	double next_distance(final TSPLibTokenizer in) throws IOException {
+		final double d = in.next_number();
+		if(!DistanceType.INT.can_hold(d)) { throw new IOException("Non-integer distance: " + d); }
+		return d;
+	}
+	
+	/**
+	 * Reads a NODE_COORD_SECTION, made of lines with node id, x and y.
+	 */
+	CoordinateGraph read_coordinates(final TSPLibTokenizer in, final int n, final String edge_weight_type) throws IOException {
+		final DistanceFunction function = distance_function(edge_weight_type);
+		final double[] x = new double[n];
+		final double[] y = new double[n];
+		
+		for(int k = 0; k < n; k++) {
+			final int id = (int) in.next_number() - 1;
+			if(id < 0 || id >= n) { throw new IOException("Invalid node id: " + (id + 1)); }
+			x[id] = in.next_number();
+			y[id] = in.next_number();
+		}
+		
+		return new CoordinateGraph(x, y, function);
+	}
+	
+	DistanceFunction distance_function(final String edge_weight_type) {
+		switch(edge_weight_type) {
+			case "EUC_2D": return DistanceFunction.EUC_2D;
+			case "CEIL_2D": return DistanceFunction.CEIL_2D;
+			case "ATT": return DistanceFunction.ATT;
+			case "GEO": return DistanceFunction.GEO;
+			default:
+				fail("Unsupported EDGE_WEIGHT_TYPE: " + edge_weight_type);
+				return null;
+		}
+	}
+	
+	void skip_numbers(final TSPLibTokenizer in, final int how_many) throws IOException {
+		for(int i = 0; i < how_many; i++) { in.next_number(); }
+	}
+	
+	void check_dimension(final int n) {
+		if(n <= 0) { fail("Missing or invalid DIMENSION before the data section"); }
+	}
+	
+	void fail(final String message) {
+		System.err.println("Cannot read TSPLib data file: " + filename + " (" + message + ")");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,190 @@
+package org.alberto.tsp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the tokens of a TSPLib file straight from its bytes. Numbers are parsed
+ * in place, without building any intermediate String: the only objects we create
+ * are the keywords and values of the header.
+ * @author alberto
+ *
+ */
+class TSPLibTokenizer implements AutoCloseable {
+	/**
+	 * Size of the read buffer.
+	 */
+	static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Powers of ten which are exactly representable as doubles.
+	 */
+	static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	
+	final FileChannel channel;
+	final ByteBuffer buffer;
+	
+	/**
+	 * Next byte to read, and number of valid bytes, in the buffer.
+	 */
+	int position;
+	int limit;
+	
+	TSPLibTokenizer(final Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.position = 0;
+		this.limit = 0;
+	}
+	
+	/**
+	 * Next byte, without consuming it, or -1 at the end of the file.
+	 */
+	int peek() throws IOException {
+		if(position == limit) {
+			buffer.clear();
+			final int read = channel.read(buffer);
+			if(read <= 0) { return -1; }
+			position = 0;
+			limit = read;
+		}
+		return buffer.array()[position] & 0xff;
+	}
+	
+	/**
+	 * Next byte, or -1 at the end of the file.
+	 */
+	int next() throws IOException {
+		final int b = peek();
+		if(b != -1) { position++; }
+		return b;
+	}
+	
+	static boolean is_space(final int b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+	
+	static boolean is_digit(final int b) {
+		return b >= '0' && b <= '9';
+	}
+	
+	/**
+	 * Skips any whitespace, including newlines.
+	 * @return	Whether there is anything left to read.
+	 */
+	boolean skip_space() throws IOException {
+		int b;
+		while((b = peek()) != -1 && is_space(b)) { position++; }
+		return b != -1;
+	}
+	
+	/**
+	 * Whether the next token starts like a number.
+	 */
+	boolean at_number() throws IOException {
+		if(!skip_space()) { return false; }
+		final int b = peek();
+		return is_digit(b) || b == '-' || b == '+' || b == '.';
+	}
+	
+	/**
+	 * Reads a header keyword, which ends at a whitespace or a colon. If the keyword is
+	 * followed by a colon, the colon is consumed too.
+	 * @return	The keyword, or null at the end of the file.
+	 */
+	String next_keyword() throws IOException {
+		if(!skip_space()) { return null; }
+		
+		final StringBuilder keyword = new StringBuilder();
+		int b;
+		while((b = peek()) != -1 && !is_space(b) && b != ':') { keyword.append((char) b); position++; }
+		
+		// Skip the spaces before the colon, but not the end of line
+		while((b = peek()) == ' ' || b == '\t') { position++; }
+		if(b == ':') { position++; }
+		
+		return keyword.toString();
+	}
+	
+	/**
+	 * Reads the rest of the current line, without leading and trailing spaces.
+	 */
+	String rest_of_line() throws IOException {
+		final StringBuilder line = new StringBuilder();
+		int b;
+		while((b = next()) != -1 && b != '\n') { line.append((char) b); }
+		return line.toString().trim();
+	}
+	
+	/**
+	 * Reads the next number, in decimal or scientific notation, without allocating.
+	 * Up to 18 significant digits are kept, which is more than a double can hold anyway.
+	 */
+	double next_number() throws IOException {
+		if(!skip_space()) { throw new EOFException("Expected a number, found the end of the file"); }
+		
+		int b = peek();
+		boolean negative = false;
+		if(b == '-' || b == '+') { negative = (next() == '-'); }
+		
+		long mantissa = 0;
+		int significant_digits = 0;
+		int exponent = 0;
+		boolean seen_point = false;
+		boolean seen_digit = false;
+		
+		while((b = peek()) != -1 && (is_digit(b) || (b == '.' && !seen_point))) {
+			position++;
+			if(b == '.') { seen_point = true; continue; }
+			
+			seen_digit = true;
+			if(significant_digits < 18) {
+				mantissa = mantissa * 10 + (b - '0');
+				if(mantissa != 0) { significant_digits++; }
+				if(seen_point) { exponent--; }
+			} else if(!seen_point) {
+				// A digit we cannot keep, but which still counts for the magnitude
+				exponent++;
+			}
+		}
+		
+		if(!seen_digit) { throw new IOException("Expected a number, found: " + (char) b); }
+		
+		if(b == 'e' || b == 'E') {
+			position++;
+			b = peek();
+			boolean negative_exponent = false;
+			if(b == '-' || b == '+') { negative_exponent = (next() == '-'); }
+			
+			int e = 0;
+			while(is_digit(b = peek())) { position++; e = e * 10 + (b - '0'); }
+			exponent += negative_exponent ? -e : e;
+		}
+		
+		final double value;
+		if(exponent == 0) {
+			value = mantissa;
+		} else if(exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			// Division of two exact values: correctly rounded
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else if(exponent > 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else {
+			value = mantissa * Math.pow(10, exponent);
+		}
+		
+		return negative ? -value : value;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -1,8 +1,10 @@
 package org.alberto.tsp.ga.permutationkey;
 
-import java.util.Random;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import org.alberto.biasedga.Individual;
+import org.alberto.biasedga.RandomStream;
 import org.alberto.tsp.Graph;
 
 /**
@@ -23,6 +25,12 @@ public class TSPIndividual extends Individual {
 	 */
 	final int[] permutation;
 	
+	/**
+	 * Whether the evaluator already applied local search to this individual, so that its
+	 * fitness is the length of the improved tour (see TSPIndividualEvaluator.improve).
+	 */
+	boolean improved;
+	
 	public TSPIndividual(final Graph graph, final int[] permutation) {
 		this.graph = graph;
 		this.permutation = permutation;
@@ -30,19 +38,20 @@ public class TSPIndividual extends Individual {
 
 	@Override
 	public TSPIndividual clone() {
-		return new TSPIndividual(graph, permutation);
+		final TSPIndividual copy = new TSPIndividual(graph, permutation);
+		copy.improved = improved;
+		return copy;
 	}
 
 	@Override
-	public TSPIndividual crossover(Individual other, double bias) {
+	public TSPIndividual crossover(Individual other, double bias, RandomStream prng) {
 		assert(other.getClass() == TSPIndividual.class);
 		assert(permutation.length == ((TSPIndividual)other).permutation.length);
 		
 		final int[] new_perm = new int[permutation.length];
-		final Random prng = new Random();
 		
 		for(int i = 0; i < permutation.length; i += 2) {
-			if(prng.nextDouble() < bias) {
+			if(prng.next_double() < bias) {
 				new_perm[i] = permutation[i];
 				new_perm[i+1] = permutation[i+1];
 			} else {
@@ -53,4 +62,30 @@ public class TSPIndividual extends Individual {
 		
 		return new TSPIndividual(graph, new_perm);
 	}
+	
+	/**
+	 * Fraction of the transpositions which differ (children inherit each one from a parent).
+	 */
+	@Override
+	public double distance(final Individual other) {
+		assert(other.getClass() == TSPIndividual.class);
+		
+		final int[] o = ((TSPIndividual) other).permutation;
+		int different = 0;
+		
+		for(int i = 0; i < permutation.length; i += 2) {
+			if(permutation[i] != o[i] || permutation[i+1] != o[i+1]) { different++; }
+		}
+		
+		return 2.0 * different / permutation.length;
+	}
+	
+	/**
+	 * Writes the 2n entries of the permutation, then whether the individual was improved by local search.
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		for(int i = 0; i < permutation.length; i++) { out.writeInt(permutation[i]); }
+		out.writeBoolean(improved);
+	}
 }
@@ -1,13 +1,10 @@
 package org.alberto.tsp.ga.permutationkey;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
 import org.alberto.biasedga.Individual;
 import org.alberto.biasedga.IndividualEvaluator;
 import org.alberto.tsp.Graph;
+import org.alberto.tsp.LocalSearch;
+import org.alberto.tsp.NeighbourIndex;
 
 /**
  * This class implements an evaluator for the permutation-key individuals for
@@ -20,29 +17,193 @@ public class TSPIndividualEvaluator extends IndividualEvaluator {
 	 * The underlying TSP graph.
 	 */
 	final Graph graph;
+	
+	/**
+	 * The identity permutation 0, 1, ..., n-1, from which we start decoding each individual.
+	 */
+	final int[] identity;
+	
+	/**
+	 * Scratch tour used to decode individuals: one per thread, so that evaluation does not allocate.
+	 */
+	final ThreadLocal<int[]> tours;
+	
+	/**
+	 * Local search applied to the decoded tours: one per thread (null if we do not improve tours).
+	 */
+	ThreadLocal<LocalSearch> searches = null;
+	
+	/**
+	 * Scratch memory used to write improved tours back into the permutations: one per thread.
+	 */
+	final ThreadLocal<int[]> encoders;
+	
+	/**
+	 * Whether we only improve the best new individuals of each generation (see improve),
+	 * rather than all of them as soon as they are evaluated.
+	 */
+	boolean elite_only = false;
+	
+	/**
+	 * Whether we write the improved tours back into the permutations of the individuals.
+	 * Otherwise their fitness is the length of the improved tour, but their permutations
+	 * still decode to the original one.
+	 */
+	boolean write_back = false;
 
 	public TSPIndividualEvaluator(final Graph graph) {
 		this.graph = graph;
+		this.identity = new int[graph.nodes_num()];
+		this.tours = ThreadLocal.withInitial(() -> new int[graph.nodes_num()]);
+		this.encoders = ThreadLocal.withInitial(() -> new int[2 * graph.nodes_num()]);
+		
+		for(int i = 0; i < identity.length; i++) { identity[i] = i; }
+	}
+	
+	/**
+	 * Enables the local search (2-opt and Or-opt) on the decoded tours, looking for moves among
+	 * the ``neighbours_num'' nearest neighbours of each node, and applying at most ``max_moves''
+	 * moves to each tour. Disables it if neighbours_num is 0.
+	 */
+	public TSPIndividualEvaluator with_local_search(final int neighbours_num, final int max_moves) {
+		if(neighbours_num == 0) {
+			this.searches = null;
+			return this;
+		}
+		
+		final NeighbourIndex index = graph.nearest_neighbours(neighbours_num);
+		this.searches = ThreadLocal.withInitial(() -> new LocalSearch(graph, index, neighbours_num, max_moves));
+		return this;
+	}
+	
+	/**
+	 * Chooses whether the local search only improves the best new individuals of each generation, which can make it into the elite.
+	 */
+	public TSPIndividualEvaluator with_local_search_on_elite_only(final boolean elite_only) {
+		this.elite_only = elite_only;
+		return this;
+	}
+	
+	/**
+	 * Chooses whether the tours improved by the local search are written back into the permutations.
+	 */
+	public TSPIndividualEvaluator with_write_back(final boolean write_back) {
+		this.write_back = write_back;
+		return this;
 	}
 
 	@Override
 	public double fitness_of(Individual individual) {
 		assert(individual.getClass() == TSPIndividual.class);
 		
-		final int[] permutation = ((TSPIndividual) individual).permutation;
-		final List<Integer> tour = IntStream.rangeClosed(0, (permutation.length / 2) - 1).boxed().collect(Collectors.toList());
+		return fitness_of((TSPIndividual) individual, tours.get());
+	}
+	
+	@Override
+	public void fitness_of_batch(final Individual[] individuals, final int from, final int to, final double[] fitness) {
+		final int[] tour = tours.get();
+		
+		for(int i = from; i < to; i++) {
+			assert(individuals[i].getClass() == TSPIndividual.class);
+			fitness[i] = fitness_of((TSPIndividual) individuals[i], tour);
+		}
+	}
+	
+	/**
+	 * Decodes and evaluates an individual using the given scratch tour.
+	 */
+	double fitness_of(final TSPIndividual individual, final int[] tour) {
+		decode(individual, tour);
+		
+		final double length = tour_length(tour);
+		return (searches != null && !elite_only) ? improve(individual, tour, length) : length;
+	}
+	
+	/**
+	 * Decodes an individual into the given tour, starting from the identity and applying the transpositions.
+	 */
+	void decode(final TSPIndividual individual, final int[] tour) {
+		final int[] permutation = individual.permutation;
 		
+		System.arraycopy(identity, 0, tour, 0, tour.length);
 		for(int i = 0; i < permutation.length; i += 2) {
-			Collections.swap(tour, permutation[i], permutation[i+1]);
+			final int tmp = tour[permutation[i]];
+			tour[permutation[i]] = tour[permutation[i+1]];
+			tour[permutation[i+1]] = tmp;
 		}
-				
+	}
+	
+	@Override
+	public boolean improves_elite() {
+		return searches != null && elite_only;
+	}
+	
+	@Override
+	public double improve(final Individual individual, final double fitness) {
+		assert(individual.getClass() == TSPIndividual.class);
+		
+		final TSPIndividual t = (TSPIndividual) individual;
+		if(t.improved) { return fitness; }
+		
+		final int[] tour = tours.get();
+		decode(t, tour);
+		return improve(t, tour, fitness);
+	}
+	
+	/**
+	 * Applies the local search to the decoded tour of an individual.
+	 * @param tour		The decoded tour, which is overwritten by the improved tour.
+	 * @param length	The length of the decoded tour.
+	 * @return			The length of the improved tour.
+	 */
+	double improve(final TSPIndividual individual, final int[] tour, final double length) {
+		final double improved_length = searches.get().improve(tour, length);
+		
+		if(write_back && improved_length < length) { encode(tour, individual.permutation); }
+		
+		individual.improved = true;
+		return improved_length;
+	}
+	
+	/**
+	 * Writes into ``permutation'' the n transpositions which turn the identity into ``tour'':
+	 * the i-th one brings tour[i] into position i, like a selection sort.
+	 */
+	void encode(final int[] tour, final int[] permutation) {
+		assert(permutation.length == 2 * tour.length);
+		
+		final int n = tour.length;
+		final int[] scratch = encoders.get();
+		
+		// The first half of scratch is the partially built tour, the second half the position of each node in it
+		System.arraycopy(identity, 0, scratch, 0, n);
+		System.arraycopy(identity, 0, scratch, n, n);
+		
+		for(int i = 0; i < n; i++) {
+			final int j = scratch[n + tour[i]];
+			permutation[2 * i] = i;
+			permutation[2 * i + 1] = j;
+			
+			final int displaced = scratch[i];
+			scratch[j] = displaced;
+			scratch[n + displaced] = j;
+			scratch[i] = tour[i];
+			scratch[n + tour[i]] = i;
+		}
+	}
+	
+	/**
+	 * Length of the closed tour which visits the nodes in the given order.
+	 */
+	double tour_length(final int[] tour) {
+		final int n = tour.length;
 		double fitness = 0;
 		
-		for(int i = 0; i < tour.size() - 1; i++) {
-			fitness += graph.get_distance(tour.get(i), tour.get(i+1));
+		for(int i = 0; i < n - 1; i++) {
+			fitness += graph.get_distance(tour[i], tour[i+1]);
 		}
 		
-		fitness += graph.get_distance(tour.get(tour.size() - 1), tour.get(0));
+		fitness += graph.get_distance(tour[n - 1], tour[0]);
 		
 		return fitness;
 	}
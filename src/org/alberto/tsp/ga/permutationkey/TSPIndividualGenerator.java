@@ -1,8 +1,10 @@
 package org.alberto.tsp.ga.permutationkey;
 
-import java.util.stream.IntStream;
+import java.io.DataInput;
+import java.io.IOException;
 
 import org.alberto.biasedga.IndividualGenerator;
+import org.alberto.biasedga.RandomStream;
 import org.alberto.tsp.Graph;
 
 /**
@@ -22,16 +24,21 @@ public class TSPIndividualGenerator extends IndividualGenerator {
 		this.graph = graph;
 	}
 
-	public TSPIndividualGenerator(final Graph graph, final int random_seed) {
-		super(random_seed);
-		this.graph = graph;
-	}
-
 	@Override
-	public TSPIndividual generate() {
+	public TSPIndividual generate(final RandomStream prng) {
 		final int n = graph.nodes_num();
 		final int[] permutation = new int[2 * n];
-		IntStream.rangeClosed(0, n - 1).forEach(i -> permutation[i] = prng.nextInt(n - 1));
+		for(int i = 0; i < n; i++) { permutation[i] = prng.next_int(n - 1); }
 		return new TSPIndividual(graph, permutation);
 	}
+	
+	@Override
+	public TSPIndividual read(final DataInput in) throws IOException {
+		final int[] permutation = new int[2 * graph.nodes_num()];
+		for(int i = 0; i < permutation.length; i++) { permutation[i] = in.readInt(); }
+		
+		final TSPIndividual individual = new TSPIndividual(graph, permutation);
+		individual.improved = in.readBoolean();
+		return individual;
+	}
 }
@@ -0,0 +1,217 @@
+package org.alberto.tsp.ga.randomkey;
+
+import java.util.Arrays;
+
+/**
+ * Sorts the nodes of a random-key individual by key, i.e. decodes the individual
+ * into a tour. Since the keys are uniformly distributed in [0, 1), we use a bucket
+ * sort with one bucket per node, so that each bucket only contains a handful of
+ * nodes, which we sort by insertion. If the keys are not uniform and a bucket
+ * gets too large, we sort it with a quicksort instead.
+ * The sorter can also decode a child incrementally, starting from the decoded tour of
+ * a parent with which it shares most keys: see merge.
+ * All the memory is allocated once, so a sorter should be reused for many individuals
+ * (but not shared across threads).
+ * Ties between keys are broken by node index, i.e. the sort is stable.
+ * @author alberto
+ *
+ */
+class KeySorter {
+	/**
+	 * Buckets with more nodes than this are sorted with quicksort.
+	 */
+	static final int INSERTION_SORT_THRESHOLD = 24;
+	
+	/**
+	 * Number of nodes.
+	 */
+	final int n;
+	
+	/**
+	 * The nodes sorted by key, i.e. the decoded tour.
+	 */
+	final int[] order;
+	
+	/**
+	 * Position in ``order'' where each bucket starts (plus one extra element, which is n).
+	 */
+	final int[] bucket_start;
+	
+	/**
+	 * Next free position in ``order'' for each bucket.
+	 */
+	final int[] cursor;
+	
+	/**
+	 * When decoding incrementally: the nodes whose key differs from the parent's.
+	 */
+	final int[] moved;
+	
+	/**
+	 * When decoding incrementally: whether each node's key differs from the parent's.
+	 */
+	final boolean[] changed;
+	
+	/**
+	 * When writing an improved tour back into the keys: the keys of the decoded tour, in increasing order.
+	 */
+	double[] sorted_keys;
+	
+	KeySorter(final int n) {
+		this.n = n;
+		this.order = new int[n];
+		this.bucket_start = new int[n + 1];
+		this.cursor = new int[n];
+		this.moved = new int[n];
+		this.changed = new boolean[n];
+	}
+	
+	/**
+	 * Sorts nodes 0, ..., n-1 by their keys, keys[offset], ..., keys[offset + n - 1].
+	 * @return	The sorted nodes. The array is owned by the sorter and is overwritten by the next call.
+	 */
+	int[] sort(final double[] keys, final int offset) {
+		// Count how many keys go into each bucket
+		Arrays.fill(bucket_start, 0);
+		for(int i = 0; i < n; i++) { bucket_start[bucket_of(keys[offset + i]) + 1]++; }
+		for(int b = 0; b < n; b++) { bucket_start[b + 1] += bucket_start[b]; }
+		
+		// Scatter the nodes into their buckets, in increasing index order
+		System.arraycopy(bucket_start, 0, cursor, 0, n);
+		for(int i = 0; i < n; i++) { order[cursor[bucket_of(keys[offset + i])]++] = i; }
+		
+		// Sort each bucket
+		for(int b = 0; b < n; b++) {
+			final int from = bucket_start[b];
+			final int to = bucket_start[b + 1];
+			
+			if(to - from <= INSERTION_SORT_THRESHOLD) {
+				insertion_sort(order, keys, offset, from, to);
+			} else {
+				quicksort(order, keys, offset, from, to);
+			}
+		}
+		
+		return order;
+	}
+	
+	/**
+	 * Decodes a child starting from the decoded tour of its parent. Before calling this
+	 * method, the caller must have filled ``changed'', and put the m nodes whose key
+	 * changed in moved[0..m). Since all other nodes have the same key as in the parent,
+	 * their relative order is the same as in the parent's tour: we only have to sort the
+	 * moved nodes and merge them with the others.
+	 * @param keys			The child's keys are keys[offset], ..., keys[offset + n - 1].
+	 * @param parent_order	The parent's tour is parent_order[parent_offset], ..., parent_order[parent_offset + n - 1].
+	 * @param m				Number of moved nodes.
+	 * @return	The sorted nodes. The array is owned by the sorter and is overwritten by the next call.
+	 */
+	int[] merge(final double[] keys, final int offset, final int[] parent_order, final int parent_offset, final int m) {
+		quicksort(moved, keys, offset, 0, m);
+		
+		int k = 0;
+		int out = 0;
+		for(int p = parent_offset; p < parent_offset + n; p++) {
+			final int node = parent_order[p];
+			if(changed[node]) { continue; }
+			
+			while(k < m && before(keys, offset, moved[k], node)) { order[out++] = moved[k++]; }
+			order[out++] = node;
+		}
+		while(k < m) { order[out++] = moved[k++]; }
+		
+		return order;
+	}
+	
+	int bucket_of(final double key) {
+		final int b = (int) (key * n);
+		return (b < 0) ? 0 : ((b >= n) ? n - 1 : b);
+	}
+	
+	/**
+	 * Whether node i comes before node j in the tour.
+	 */
+	static boolean before(final double[] keys, final int offset, final int i, final int j) {
+		final double ki = keys[offset + i];
+		final double kj = keys[offset + j];
+		return ki < kj || (ki == kj && i < j);
+	}
+	
+	/**
+	 * Sorts nodes[from..to) by key.
+	 */
+	static void insertion_sort(final int[] nodes, final double[] keys, final int offset, final int from, final int to) {
+		for(int i = from + 1; i < to; i++) {
+			final int node = nodes[i];
+			int j = i - 1;
+			while(j >= from && before(keys, offset, node, nodes[j])) {
+				nodes[j + 1] = nodes[j];
+				j--;
+			}
+			nodes[j + 1] = node;
+		}
+	}
+	
+	/**
+	 * Sorts nodes[from..to) by key. We only recur on the smaller half, so the stack depth is logarithmic.
+	 */
+	static void quicksort(final int[] nodes, final double[] keys, final int offset, int from, int to) {
+		while(to - from > INSERTION_SORT_THRESHOLD) {
+			final int mid = (from + to) >>> 1;
+			
+			// Median of three: put the pivot in nodes[to - 1]
+			if(before(keys, offset, nodes[mid], nodes[from])) { swap(nodes, mid, from); }
+			if(before(keys, offset, nodes[to - 1], nodes[from])) { swap(nodes, to - 1, from); }
+			if(before(keys, offset, nodes[mid], nodes[to - 1])) { swap(nodes, mid, to - 1); }
+			final int pivot = nodes[to - 1];
+			
+			// Lomuto partition: no two nodes compare equal, so this is balanced enough
+			int store = from;
+			for(int i = from; i < to - 1; i++) {
+				if(before(keys, offset, nodes[i], pivot)) { swap(nodes, i, store++); }
+			}
+			swap(nodes, store, to - 1);
+			
+			if(store - from < to - store - 1) {
+				quicksort(nodes, keys, offset, from, store);
+				from = store + 1;
+			} else {
+				quicksort(nodes, keys, offset, store + 1, to);
+				to = store;
+			}
+		}
+		
+		insertion_sort(nodes, keys, offset, from, to);
+	}
+	
+	static void swap(final int[] nodes, final int i, final int j) {
+		final int tmp = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = tmp;
+	}
+	
+	/**
+	 * Saves the keys of an individual in increasing order, given its decoded tour, so that
+	 * restore_keys can then assign them to the nodes of a different tour.
+	 */
+	void save_keys(final double[] keys, final int offset, final int[] tour) {
+		if(sorted_keys == null) { sorted_keys = new double[n]; }
+		for(int p = 0; p < n; p++) { sorted_keys[p] = keys[offset + tour[p]]; }
+	}
+	
+	/**
+	 * Assigns the keys saved by save_keys to the nodes, so that they decode to ``tour'':
+	 * the p-th node of the tour gets the p-th smallest key. The keys of the individual
+	 * are the same values as before, only on different nodes, except that equal keys are
+	 * nudged up: otherwise ties would be broken by node index, and not follow the tour.
+	 */
+	void restore_keys(final double[] keys, final int offset, final int[] tour) {
+		double previous = Double.NEGATIVE_INFINITY;
+		
+		for(int p = 0; p < n; p++) {
+			final double key = (sorted_keys[p] > previous) ? sorted_keys[p] : Math.nextUp(previous);
+			keys[offset + tour[p]] = key;
+			previous = key;
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package org.alberto.tsp.ga.randomkey;
 
-import java.util.Random;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import org.alberto.biasedga.Individual;
+import org.alberto.biasedga.RandomStream;
 import org.alberto.tsp.Graph;
 
 /**
@@ -17,36 +19,148 @@ public class TSPIndividual extends Individual {
 	final Graph graph;
 	
 	/**
-	 * Genetic representation with random keys.
+	 * Genetic representation with random keys. The keys of this individual are
+	 * keys[offset], ..., keys[offset + n - 1], where n is the number of nodes: the
+	 * array is shared with other individuals, when they live in a TSPIndividualArena.
 	 */
 	final double[] keys;
 	
+	/**
+	 * Position of the first key in ``keys''.
+	 */
+	final int offset;
+	
+	/**
+	 * Decoded tour of the individual (i.e. its nodes sorted by key), kept only when the
+	 * evaluator decodes incrementally: children can then be decoded starting from it.
+	 * Allocated the first time it is needed, and then reused.
+	 */
+	int[] order;
+	
+	/**
+	 * Whether ``order'' holds the decoded tour of the current keys.
+	 */
+	boolean decoded;
+	
+	/**
+	 * Length of the decoded tour (only meaningful if ``decoded'').
+	 */
+	double decoded_length;
+	
+	/**
+	 * Whether the evaluator already applied local search to this individual, so that its
+	 * fitness is the length of the improved tour (see TSPIndividualEvaluator.improve).
+	 */
+	boolean improved;
+	
 	public TSPIndividual(final Graph graph, final double keys[]) {
+		this(graph, keys, 0);
+	}
+	
+	public TSPIndividual(final Graph graph, final double keys[], final int offset) {
 		this.graph = graph;
 		this.keys = keys;
+		this.offset = offset;
 	}
 
 	@Override
 	public Individual clone() {
-		return new TSPIndividual(graph, keys);
+		final TSPIndividual copy = new TSPIndividual(graph, keys, offset);
+		copy.order = order;
+		copy.decoded = decoded;
+		copy.decoded_length = decoded_length;
+		copy.improved = improved;
+		return copy;
 	}
 
 	@Override
-	public TSPIndividual crossover(Individual other, double bias) {
+	public TSPIndividual crossover(Individual other, double bias, RandomStream prng) {
 		assert(other.getClass() == TSPIndividual.class);
-		assert(keys.length == ((TSPIndividual)other).keys.length);
 		
-		final double[] new_keys = new double[keys.length];
-		final Random prng = new Random();
+		final int n = graph.nodes_num();
+		final double[] new_keys = new double[n];
+		final TSPIndividual o = (TSPIndividual) other;
 		
-		for(int i = 0; i < keys.length; i++) {
-			if(prng.nextDouble() < bias) {
-				new_keys[i] = keys[i];
+		for(int i = 0; i < n; i++) {
+			if(prng.next_double() < bias) {
+				new_keys[i] = keys[offset + i];
 			} else {
-				new_keys[i] = ((TSPIndividual)other).keys[i];
+				new_keys[i] = o.keys[o.offset + i];
 			}
 		}
 		
 		return new TSPIndividual(graph, new_keys);
 	}
+	
+	@Override
+	public void copy_into(final Individual target) {
+		assert(target.getClass() == TSPIndividual.class);
+		
+		final TSPIndividual t = (TSPIndividual) target;
+		System.arraycopy(keys, offset, t.keys, t.offset, graph.nodes_num());
+		
+		if(decoded) {
+			t.store_decoded(order, decoded_length);
+		} else {
+			t.decoded = false;
+		}
+		t.improved = improved;
+	}
+	
+	@Override
+	public void crossover_into(final Individual other, final double bias, final Individual target, final RandomStream prng) {
+		assert(other.getClass() == TSPIndividual.class);
+		assert(target.getClass() == TSPIndividual.class);
+		
+		final int n = graph.nodes_num();
+		final TSPIndividual o = (TSPIndividual) other;
+		final TSPIndividual t = (TSPIndividual) target;
+		
+		for(int i = 0; i < n; i++) {
+			t.keys[t.offset + i] = (prng.next_double() < bias) ? keys[offset + i] : o.keys[o.offset + i];
+		}
+		t.decoded = false;
+		t.improved = false;
+	}
+	
+	/**
+	 * Fraction of the keys which differ: children inherit each key from a parent, so
+	 * individuals which descend from the same ones share most of their keys.
+	 */
+	@Override
+	public double distance(final Individual other) {
+		assert(other.getClass() == TSPIndividual.class);
+		
+		final int n = graph.nodes_num();
+		final TSPIndividual o = (TSPIndividual) other;
+		int different = 0;
+		
+		for(int i = 0; i < n; i++) {
+			if(keys[offset + i] != o.keys[o.offset + i]) { different++; }
+		}
+		
+		return (double) different / n;
+	}
+	
+	/**
+	 * Writes the n keys, then whether the individual was improved by local search.
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		final int n = graph.nodes_num();
+		for(int i = 0; i < n; i++) { out.writeDouble(keys[offset + i]); }
+		out.writeBoolean(improved);
+	}
+	
+	/**
+	 * Remembers the decoded tour of this individual, and its length.
+	 */
+	void store_decoded(final int[] tour, final double length) {
+		final int n = graph.nodes_num();
+		
+		if(order == null) { order = new int[n]; }
+		System.arraycopy(tour, 0, order, 0, n);
+		decoded = true;
+		decoded_length = length;
+	}
 }
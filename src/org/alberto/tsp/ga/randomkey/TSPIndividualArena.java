@@ -0,0 +1,34 @@
+package org.alberto.tsp.ga.randomkey;
+
+import org.alberto.biasedga.IndividualArena;
+import org.alberto.tsp.Graph;
+
+/**
+ * Arena for random-key individuals: the keys of a whole block of individuals
+ * are stored back to back in one flat array, of size (individuals * nodes).
+ * @author alberto
+ *
+ */
+public class TSPIndividualArena extends IndividualArena {
+	/**
+	 * Underlying graph for the TSP.
+	 */
+	final Graph graph;
+	
+	public TSPIndividualArena(final Graph graph) {
+		this.graph = graph;
+	}
+
+	@Override
+	public TSPIndividual[] allocate(final int size) {
+		final int n = graph.nodes_num();
+		final double[] keys = new double[size * n];
+		final TSPIndividual[] individuals = new TSPIndividual[size];
+		
+		for(int i = 0; i < size; i++) {
+			individuals[i] = new TSPIndividual(graph, keys, i * n);
+		}
+		
+		return individuals;
+	}
+}
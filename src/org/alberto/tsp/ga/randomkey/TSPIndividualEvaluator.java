@@ -1,13 +1,10 @@
 package org.alberto.tsp.ga.randomkey;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
 import org.alberto.biasedga.Individual;
 import org.alberto.biasedga.IndividualEvaluator;
 import org.alberto.tsp.Graph;
+import org.alberto.tsp.LocalSearch;
+import org.alberto.tsp.NeighbourIndex;
 
 /**
  * This class implements an evaluator for the random-key individuals for
@@ -20,27 +17,247 @@ public class TSPIndividualEvaluator extends IndividualEvaluator {
 	 * The underlying TSP graph.
 	 */
 	final Graph graph;
+	
+	/**
+	 * Scratch memory used to decode individuals: one per thread, so that evaluation does not allocate.
+	 */
+	final ThreadLocal<KeySorter> sorters;
+	
+	/**
+	 * Whether we keep the decoded tours of individuals, so that we can decode their
+	 * children incrementally (see fitness_of_children).
+	 */
+	boolean incremental = false;
+	
+	/**
+	 * Local search applied to the decoded tours: one per thread (null if we do not improve tours).
+	 */
+	ThreadLocal<LocalSearch> searches = null;
+	
+	/**
+	 * Whether we only improve the best new individuals of each generation (see improve),
+	 * rather than all of them as soon as they are evaluated.
+	 */
+	boolean elite_only = false;
+	
+	/**
+	 * Whether we write the improved tours back into the keys of the individuals. Otherwise
+	 * their fitness is the length of the improved tour, but their keys still decode to the
+	 * original one.
+	 */
+	boolean write_back = false;
 
 	public TSPIndividualEvaluator(final Graph graph) {
 		this.graph = graph;
+		this.sorters = ThreadLocal.withInitial(() -> new KeySorter(graph.nodes_num()));
+	}
+	
+	/**
+	 * Enables or disables the incremental decoding of children from their elite parent.
+	 */
+	public TSPIndividualEvaluator with_incremental_decoding(final boolean incremental) {
+		this.incremental = incremental;
+		return this;
+	}
+	
+	/**
+	 * Enables the local search (2-opt and Or-opt) on the decoded tours, looking for moves among
+	 * the ``neighbours_num'' nearest neighbours of each node, and applying at most ``max_moves''
+	 * moves to each tour. Disables it if neighbours_num is 0.
+	 */
+	public TSPIndividualEvaluator with_local_search(final int neighbours_num, final int max_moves) {
+		if(neighbours_num == 0) {
+			this.searches = null;
+			return this;
+		}
+		
+		final NeighbourIndex index = graph.nearest_neighbours(neighbours_num);
+		this.searches = ThreadLocal.withInitial(() -> new LocalSearch(graph, index, neighbours_num, max_moves));
+		return this;
+	}
+	
+	/**
+	 * Chooses whether the local search only improves the best new individuals of each generation, which can make it into the elite.
+	 */
+	public TSPIndividualEvaluator with_local_search_on_elite_only(final boolean elite_only) {
+		this.elite_only = elite_only;
+		return this;
+	}
+	
+	/**
+	 * Chooses whether the tours improved by the local search are written back into the keys.
+	 */
+	public TSPIndividualEvaluator with_write_back(final boolean write_back) {
+		this.write_back = write_back;
+		return this;
 	}
 
 	@Override
 	public double fitness_of(Individual individual) {
 		assert(individual.getClass() == TSPIndividual.class);
 		
-		final double[] keys = ((TSPIndividual)individual).keys;
-		final List<Integer> indices = IntStream.rangeClosed(0, keys.length - 1).boxed().collect(Collectors.toList());
+		return fitness_of((TSPIndividual) individual, sorters.get());
+	}
+	
+	@Override
+	public void fitness_of_batch(final Individual[] individuals, final int from, final int to, final double[] fitness) {
+		final KeySorter sorter = sorters.get();
 		
-		Collections.sort(indices, (i1, i2) -> Double.compare(keys[i1], keys[i2]));
+		for(int i = from; i < to; i++) {
+			assert(individuals[i].getClass() == TSPIndividual.class);
+			fitness[i] = fitness_of((TSPIndividual) individuals[i], sorter);
+		}
+	}
+	
+	/**
+	 * Evaluates the children incrementally, if enabled: a child generated by biased crossover
+	 * has most of the keys of its elite parent, whose decoded tour we already know. We only
+	 * need to re-sort the keys which changed, and to re-compute the edges next to them.
+	 */
+	@Override
+	public void fitness_of_children(final Individual[] children, final Individual[] parents, final int from, final int to, final double[] fitness) {
+		if(!incremental) {
+			fitness_of_batch(children, from, to, fitness);
+			return;
+		}
+		
+		final KeySorter sorter = sorters.get();
+		
+		for(int i = from; i < to; i++) {
+			assert(children[i].getClass() == TSPIndividual.class);
+			assert(parents[i].getClass() == TSPIndividual.class);
+			fitness[i] = fitness_of_child((TSPIndividual) children[i], (TSPIndividual) parents[i], sorter);
+		}
+	}
+	
+	/**
+	 * Decodes and evaluates an individual using the given scratch memory.
+	 */
+	double fitness_of(final TSPIndividual individual, final KeySorter sorter) {
+		final int[] tour = sorter.sort(individual.keys, individual.offset);
+		final double length = tour_length(tour);
 		
+		if(incremental) { individual.store_decoded(tour, length); }
+		return improves_all() ? improve(individual, tour, length, sorter) : length;
+	}
+	
+	/**
+	 * Decodes and evaluates a child, starting from the decoded tour of its parent. If too many
+	 * keys changed, it is cheaper to decode the child from scratch.
+	 */
+	double fitness_of_child(final TSPIndividual child, final TSPIndividual parent, final KeySorter sorter) {
+		if(!parent.decoded) { return fitness_of(child, sorter); }
+		
+		final int n = graph.nodes_num();
+		final boolean[] changed = sorter.changed;
+		int m = 0;
+		
+		for(int i = 0; i < n; i++) {
+			changed[i] = (child.keys[child.offset + i] != parent.keys[parent.offset + i]);
+			if(changed[i]) { sorter.moved[m++] = i; }
+		}
+		
+		if(2 * m > n) { return fitness_of(child, sorter); }
+		
+		final int[] tour = sorter.merge(child.keys, child.offset, parent.order, 0, m);
+		
+		// Take the moved nodes out of the parent's tour, and put them back in their new positions
+		final double length = parent.decoded_length - detour_length(parent.order, changed) + detour_length(tour, changed);
+		
+		child.store_decoded(tour, length);
+		return improves_all() ? improve(child, tour, length, sorter) : length;
+	}
+	
+	/**
+	 * Whether we apply the local search to every individual we evaluate.
+	 */
+	boolean improves_all() {
+		return searches != null && !elite_only;
+	}
+	
+	@Override
+	public boolean improves_elite() {
+		return searches != null && elite_only;
+	}
+	
+	@Override
+	public double improve(final Individual individual, final double fitness) {
+		assert(individual.getClass() == TSPIndividual.class);
+		
+		final TSPIndividual t = (TSPIndividual) individual;
+		if(t.improved) { return fitness; }
+		
+		final KeySorter sorter = sorters.get();
+		return improve(t, sorter.sort(t.keys, t.offset), fitness, sorter);
+	}
+	
+	/**
+	 * Applies the local search to the decoded tour of an individual.
+	 * @param tour		The decoded tour, which is overwritten by the improved tour.
+	 * @param length	The length of the decoded tour.
+	 * @return			The length of the improved tour.
+	 */
+	double improve(final TSPIndividual individual, final int[] tour, final double length, final KeySorter sorter) {
+		if(write_back) { sorter.save_keys(individual.keys, individual.offset, tour); }
+		
+		final double improved_length = searches.get().improve(tour, length);
+		
+		if(write_back && improved_length < length) {
+			sorter.restore_keys(individual.keys, individual.offset, tour);
+			if(individual.decoded) { individual.store_decoded(tour, improved_length); }
+		}
+		
+		individual.improved = true;
+		return improved_length;
+	}
+	
+	/**
+	 * Extra length that a tour pays to visit the ``changed'' nodes, with respect to the tour
+	 * which skips them. For each maximal sequence of changed nodes c1, ..., ck, visited between
+	 * two unchanged nodes u and v, this is d(u, c1) + ... + d(ck, v) - d(u, v).
+	 * There must be at least one unchanged node.
+	 */
+	double detour_length(final int[] tour, final boolean[] changed) {
+		final int n = tour.length;
+		
+		// Start from an unchanged node, so that we never begin in the middle of a sequence
+		int start = 0;
+		while(changed[tour[start]]) { start++; }
+		
+		double detour = 0;
+		int last_unchanged = tour[start];
+		int previous = last_unchanged;
+		
+		for(int s = 1; s <= n; s++) {
+			final int node = tour[(start + s < n) ? start + s : start + s - n];
+			
+			if(changed[node]) {
+				detour += graph.get_distance(previous, node);
+			} else {
+				if(previous != last_unchanged) {
+					detour += graph.get_distance(previous, node) - graph.get_distance(last_unchanged, node);
+				}
+				last_unchanged = node;
+			}
+			
+			previous = node;
+		}
+		
+		return detour;
+	}
+	
+	/**
+	 * Length of the closed tour which visits the nodes in the given order.
+	 */
+	double tour_length(final int[] tour) {
+		final int n = tour.length;
 		double fitness = 0;
 		
-		for(int i = 0; i < indices.size() - 1; i++) {
-			fitness += graph.get_distance(indices.get(i), indices.get(i+1));
+		for(int i = 0; i < n - 1; i++) {
+			fitness += graph.get_distance(tour[i], tour[i+1]);
 		}
 		
-		fitness += graph.get_distance(indices.get(indices.size() - 1), indices.get(0));
+		fitness += graph.get_distance(tour[n - 1], tour[0]);
 		
 		return fitness;
 	}
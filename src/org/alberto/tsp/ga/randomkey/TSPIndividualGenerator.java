@@ -1,8 +1,11 @@
 package org.alberto.tsp.ga.randomkey;
 
-import java.util.stream.IntStream;
+import java.io.DataInput;
+import java.io.IOException;
 
+import org.alberto.biasedga.Individual;
 import org.alberto.biasedga.IndividualGenerator;
+import org.alberto.biasedga.RandomStream;
 import org.alberto.tsp.Graph;
 
 /**
@@ -22,15 +25,37 @@ public class TSPIndividualGenerator extends IndividualGenerator {
 		this.graph = graph;
 	}
 
-	public TSPIndividualGenerator(final Graph graph, final int random_seed) {
-		super(random_seed);
-		this.graph = graph;
-	}
-
 	@Override
-	public TSPIndividual generate() {
+	public TSPIndividual generate(final RandomStream prng) {
 		final double[] keys = new double[graph.nodes_num()];
-		IntStream.rangeClosed(0, graph.nodes_num() - 1).forEach(i -> keys[i] = prng.nextDouble());
+		for(int i = 0; i < keys.length; i++) { keys[i] = prng.next_double(); }
 		return new TSPIndividual(graph, keys);
 	}
+
+	@Override
+	public void generate_into(final Individual target, final RandomStream prng) {
+		assert(target.getClass() == TSPIndividual.class);
+		
+		final TSPIndividual t = (TSPIndividual) target;
+		for(int i = 0; i < graph.nodes_num(); i++) { t.keys[t.offset + i] = prng.next_double(); }
+		t.decoded = false;
+		t.improved = false;
+	}
+
+	@Override
+	public TSPIndividual read(final DataInput in) throws IOException {
+		final TSPIndividual individual = new TSPIndividual(graph, new double[graph.nodes_num()]);
+		read_into(individual, in);
+		return individual;
+	}
+
+	@Override
+	public void read_into(final Individual target, final DataInput in) throws IOException {
+		assert(target.getClass() == TSPIndividual.class);
+		
+		final TSPIndividual t = (TSPIndividual) target;
+		for(int i = 0; i < graph.nodes_num(); i++) { t.keys[t.offset + i] = in.readDouble(); }
+		t.decoded = false;
+		t.improved = in.readBoolean();
+	}
 }
\ No newline at end of file
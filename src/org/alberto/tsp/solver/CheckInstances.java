@@ -0,0 +1,100 @@
+package org.alberto.tsp.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.alberto.tsp.Graph;
+import org.alberto.tsp.InstanceCache;
+import org.alberto.tsp.TSPLibGraphGenerator;
+
+/**
+ * Checks that instances are read as TSPLib intends: some known distances, and the length
+ * of the optimal tour (found exactly, by dynamic programming), of gr17 (an explicit matrix,
+ * read through the instance cache) and of burma14 (GEO coordinates, written out here since
+ * the repository does not ship it). The optima are the published ones, which the tuning
+ * harness also relies on.
+ * @author alberto
+ *
+ */
+public class CheckInstances {
+	static final String BURMA14 = String.join("\n",
+			"NAME: burma14",
+			"TYPE: TSP",
+			"DIMENSION: 14",
+			"EDGE_WEIGHT_TYPE: GEO",
+			"NODE_COORD_SECTION",
+			"1 16.47 96.10", "2 16.47 94.44", "3 20.09 92.54", "4 22.39 93.37", "5 25.23 97.24",
+			"6 22.00 96.05", "7 20.47 97.02", "8 17.20 96.29", "9 16.30 97.38", "10 14.05 98.12",
+			"11 16.53 97.38", "12 21.52 95.59", "13 19.41 97.13", "14 20.09 94.55",
+			"EOF", "");
+	
+	public static void main(String[] args) {
+		final Graph gr17 = new InstanceCache(new File(new File("tsplib"), "gr17.tsp").getPath()).load();
+		check("gr17", gr17, new int[][] { { 1, 0, 633 }, { 2, 0, 257 }, { 2, 1, 390 }, { 16, 15, 336 } }, 2085);
+		
+		try {
+			final Path burma14 = Files.createTempFile("burma14", ".tsp");
+			try(final PrintWriter writer = new PrintWriter(burma14.toFile())) {
+				writer.print(BURMA14);
+			}
+			final Graph graph = new TSPLibGraphGenerator(burma14.toString()).generate();
+			Files.delete(burma14);
+			
+			check("burma14", graph, new int[][] { { 0, 1, 153 }, { 0, 2, 510 }, { 0, 3, 706 } }, 3323);
+		} catch(final IOException e) {
+			System.err.println("Cannot write the burma14 instance: " + e.getMessage());
+			System.exit(1);
+		}
+		
+		System.out.println("All instances check out.");
+	}
+	
+	/**
+	 * Checks some distances (i, j, distance) of a graph and the length of its optimal tour.
+	 */
+	static void check(final String name, final Graph graph, final int[][] distances, final double optimum) {
+		for(final int[] d : distances) {
+			if(graph.get_distance(d[0], d[1]) != d[2]) {
+				System.err.println(name + ": distance between " + d[0] + " and " + d[1] + " is " + graph.get_distance(d[0], d[1]) + ", not " + d[2]);
+				System.exit(1);
+			}
+		}
+		
+		final double length = optimal_tour_length(graph);
+		if(length != optimum) {
+			System.err.println(name + ": the optimal tour is " + length + " long, not " + optimum);
+			System.exit(1);
+		}
+		System.out.println(name + ": optimal tour " + length);
+	}
+	
+	/**
+	 * Length of the optimal tour, by the Held-Karp dynamic programme (only for small graphs).
+	 * best[s][j] is the length of the shortest path from node 0 through the nodes in s, ending in j.
+	 */
+	static double optimal_tour_length(final Graph graph) {
+		final int n = graph.nodes_num();
+		final double[][] best = new double[1 << n][n];
+		for(final double[] row : best) { Arrays.fill(row, Double.POSITIVE_INFINITY); }
+		best[1][0] = 0;
+		
+		for(int s = 1; s < (1 << n); s += 2) {
+			for(int j = 0; j < n; j++) {
+				if(best[s][j] == Double.POSITIVE_INFINITY) { continue; }
+				
+				for(int k = 1; k < n; k++) {
+					if((s & (1 << k)) != 0) { continue; }
+					best[s | (1 << k)][k] = Math.min(best[s | (1 << k)][k], best[s][j] + graph.get_distance(j, k));
+				}
+			}
+		}
+		
+		double length = Double.POSITIVE_INFINITY;
+		for(int j = 1; j < n; j++) { length = Math.min(length, best[(1 << n) - 1][j] + graph.get_distance(j, 0)); }
+		return length;
+	}
+}
@@ -16,7 +16,7 @@ import org.alberto.biasedga.ParametersBuilder;
 import org.alberto.biasedga.Solver;
 import org.alberto.biasedga.SolverVisitor;
 import org.alberto.tsp.Graph;
-import org.alberto.tsp.TSPLibGraphGenerator;
+import org.alberto.tsp.InstanceCache;
 
 /**
  * This class is used to test the Biased GA solvers for the TSP.
@@ -38,14 +38,16 @@ public class TestSolver {
 			// Number of reruns to perform, for each instance and each method.
 			final int reruns = 5;
 			
+			// Seed of the first rerun: rerun ``run'' uses base_seed + run, so reruns are independent but reproducible
+			final long base_seed = 1;
+			
 			// Parameters common to all runs
-			final Parameters params = new ParametersBuilder()
+			final ParametersBuilder params_builder = new ParametersBuilder()
 					.with_population_size(150)
 					.with_bias(0.7)
 					.with_elite_share(0.1)
 					.with_new_individuals_share(0.1)
-					.with_timeout_s(60)
-					.build();
+					.with_timeout_s(60);
 			
 			// Joins parts of a path in a portable way ("\" on Win, "/" on Unix, etc.)
 			final BiFunction<String, String, String> combine_path =
@@ -54,10 +56,9 @@ public class TestSolver {
 			for(final String instance : instances) {
 				System.out.println("Tests for instance: " + instance);
 				
-				// Read the instance and build the graph
+				// Read the instance and build the graph (from the binary cache, if we already have one)
 				final String instance_path = combine_path.apply(instance_folder, instance + instance_ext);
-				final TSPLibGraphGenerator gen = new TSPLibGraphGenerator(instance_path);
-				final Graph graph = gen.generate();
+				final Graph graph = new InstanceCache(instance_path).load();
 				
 				// Vectors where to collect the data across reruns
 				final List<Double> rk_results = new ArrayList<Double>(); // Random-key
@@ -73,6 +74,7 @@ public class TestSolver {
 				// Perform the test ``reruns'' times:
 				for(int run = 0; run < reruns; run++) {
 					System.out.println("Rerun #" + run);
+					final Parameters params = params_builder.with_random_seed(base_seed + run).build();
 					
 					System.out.println("Launching the random-key agorithm");
 					// 1) Test the Random-Key algorithm
@@ -0,0 +1,158 @@
+package org.alberto.tsp.solver;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import org.alberto.biasedga.ExecutionMode;
+import org.alberto.biasedga.IndividualWithFitness;
+import org.alberto.biasedga.Parameters;
+import org.alberto.biasedga.Solver;
+import org.alberto.biasedga.SolverVisitor;
+import org.alberto.biasedga.TerminationCriterion;
+import org.alberto.biasedga.tuning.Configuration;
+import org.alberto.biasedga.tuning.ConfigurationSpace;
+import org.alberto.biasedga.tuning.Experiment;
+import org.alberto.biasedga.tuning.Outcome;
+import org.alberto.biasedga.tuning.Race;
+import org.alberto.tsp.Graph;
+import org.alberto.tsp.InstanceCache;
+
+/**
+ * Tunes the parameters of the random-key solver for the TSP with F-race: samples
+ * configurations at random, and races them on the TSPLib instances, by how long
+ * they take to find a tour within ``target_gap'' of the optimum.
+ * 
+ * Each run is a sequential solver, so it runs entirely on the thread of the race which
+ * picked it up: its time to target is the CPU time of that thread from the start of the
+ * run (initial population included) to the generation which first reaches the target.
+ * Unlike the wall time, this does not depend on how the runs sharing the machine are
+ * scheduled (the timeout, however, is still on the wall clock).
+ * @author alberto
+ *
+ */
+public class TuneSolver {
+	public static void main(String[] args) {
+		final String instance_folder = "tsplib";
+		final String[] instances = { "gr17", "gr21", "gr24", "gr48", "hk48", "gr120" };
+		// Length of the optimal tours (from TSPLib)
+		final double[] optima = { 2085, 2707, 1272, 5046, 11461, 6942 };
+		final String instance_ext = ".tsp";
+		final String results_file = "tuning.csv";
+		
+		// How close to the optimum a tour must be to reach the target
+		final double target_gap = 0.02;
+		// Runs which do not reach the target in time count as failures
+		final int timeout_s = 10;
+		// Number of configurations to sample
+		final int configurations_num = 20;
+		
+		final Graph[] graphs = new Graph[instances.length];
+		for(int i = 0; i < instances.length; i++) {
+			graphs[i] = new InstanceCache(new File(new File(instance_folder), instances[i] + instance_ext).getPath()).load();
+		}
+		
+		final SolverVisitor visitor = new SolverVisitor() {
+			@Override
+			public void at_fixed_number_of_iterations(final Solver solver, final int iteration, final double elapsed_time_s) {}
+			
+			@Override
+			public void at_end(final Solver solver, final int iteration, final double elapsed_time_s) {}
+		};
+		
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		
+		final Experiment experiment = new Experiment() {
+			@Override
+			public int instances_num() {
+				return instances.length;
+			}
+			
+			@Override
+			public String instance_name(final int instance) {
+				return instances[instance];
+			}
+			
+			@Override
+			public Outcome run(final Configuration configuration, final int instance, final long seed) {
+				final double target = optima[instance] * (1 + target_gap);
+				final long start_time = cpu_time(threads);
+				final double[] time_to_target = { Double.NaN };
+				
+				// Stops at the target, like with_target_fitness, but also records when it got there
+				final TerminationCriterion reached_target = new TerminationCriterion() {
+					@Override
+					public boolean should_stop(final Solver solver, final int generation, final double elapsed_time_s) {
+						if(solver.best_fitness() > target) { return false; }
+						
+						time_to_target[0] = (cpu_time(threads) - start_time) / 1e9;
+						return true;
+					}
+				};
+				
+				final Parameters params = configuration.builder()
+						.with_timeout_s(timeout_s)
+						.with_termination_criterion(reached_target)
+						.with_random_seed(seed)
+						.with_execution_mode(ExecutionMode.SEQUENTIAL) // The race runs many solvers at once
+						.with_n_threads(1)
+						.build();
+				
+				final Graph graph = graphs[instance];
+				final Solver solver = new Solver(params,
+						new org.alberto.tsp.ga.randomkey.TSPIndividualGenerator(graph),
+						new org.alberto.tsp.ga.randomkey.TSPIndividualEvaluator(graph).with_incremental_decoding(true),
+						visitor,
+						new org.alberto.tsp.ga.randomkey.TSPIndividualArena(graph));
+				
+				final IndividualWithFitness best = solver.solve();
+				final boolean reached = !Double.isNaN(time_to_target[0]);
+				
+				return new Outcome(reached, reached ? time_to_target[0] : (cpu_time(threads) - start_time) / 1e9, best.get_fitness());
+			}
+		};
+		
+		final List<Configuration> configurations = new ConfigurationSpace()
+				.with_population_size(50, 500)
+				.with_elite_share(0.05, 0.3)
+				.with_new_individuals_share(0.05, 0.3)
+				.with_bias(0.5, 0.9)
+				.sample(configurations_num, 42);
+		
+		final Race race = new Race(configurations, experiment, Runtime.getRuntime().availableProcessors())
+				.with_min_blocks(instances.length)
+				.with_max_blocks(5 * instances.length)
+				.with_alpha(0.05)
+				.with_seed(1);
+		final List<Race.Result> results = race.run();
+		
+		try(final PrintWriter results_writer = new PrintWriter(new FileOutputStream(results_file), true)) {
+			results_writer.println(Configuration.CSV_HEADER + ",survived,blocks,mean_rank,success_rate,mean_time_to_target,mean_fitness");
+			
+			System.out.println("Survivors after " + race.blocks() + " blocks:");
+			for(final Race.Result result : results) {
+				if(result.survived()) {
+					System.out.println(String.format("%s: mean rank %.2f, success %.0f%%, time to target %.3f s",
+							result.configuration(), result.mean_rank(), 100 * result.success_rate(), result.mean_time_to_target()));
+				}
+				
+				results_writer.println(result.configuration().to_csv() + "," + result.survived() + "," + result.blocks() + "," + result.mean_rank() + ","
+						+ result.success_rate() + "," + result.mean_time_to_target() + "," + result.mean_fitness());
+			}
+		} catch(final IOException e) {
+			System.err.println("Cannot open results file: " + results_file);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * CPU time of the current thread (ns), or the wall clock if the JVM cannot measure it.
+	 */
+	static long cpu_time(final ThreadMXBean threads) {
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+}